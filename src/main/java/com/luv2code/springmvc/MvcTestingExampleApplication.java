@@ -1,13 +1,16 @@
 package com.luv2code.springmvc;
 
 import com.luv2code.springmvc.models.*;
-import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
+import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Scope;
 
-@SpringBootApplication
+//the R2DBC connection factory is created by ReactiveDatabaseConfiguration, see there
+@SpringBootApplication(exclude = R2dbcAutoConfiguration.class)
+@EnableCaching
 public class MvcTestingExampleApplication {
 
 	public static void main(String[] args) {
@@ -26,25 +29,4 @@ public class MvcTestingExampleApplication {
 		return new MathGrade(grade);
 	}
 
-	@Bean
-	@Scope(value = "prototype")
-	@Qualifier("mathGrades")
-	MathGrade getGrade() {
-		return new MathGrade();
-	}
-
-	@Bean
-	@Scope(value = "prototype")
-	@Qualifier("scienceGrades")
-	ScienceGrade getScienceGrade() {
-		return new ScienceGrade();
-	}
-
-	@Bean
-	@Scope(value = "prototype")
-	@Qualifier("historyGrades")
-	HistoryGrade getHistoryGrade() {
-		return new HistoryGrade();
-	}
-
 }
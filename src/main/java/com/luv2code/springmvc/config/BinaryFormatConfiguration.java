@@ -0,0 +1,34 @@
+package com.luv2code.springmvc.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * CBOR and Smile next to JSON for every JSON response, selected by the Accept header. Both are
+ * binary encodings of the same Jackson data model, so the payloads carry the same fields as the
+ * JSON ones, without text number formatting and, for Smile, with repeated field names shared.
+ *
+ * <p>The mappers come from Boot's builder, so they share the JSON mapper's customizations, and
+ * replace the converters Spring registers by default for these formats.
+ */
+@Configuration(proxyBeanMethods = false)
+public class BinaryFormatConfiguration {
+
+	public static final MediaType APPLICATION_SMILE = new MediaType("application", "x-jackson-smile");
+
+	@Bean
+	MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+		return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+	}
+
+	@Bean
+	MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+		return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+	}
+}
@@ -0,0 +1,53 @@
+package com.luv2code.springmvc.config;
+
+import com.luv2code.springmvc.metrics.StatementCounter;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.r2dbc.ConnectionFactoryBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+
+/**
+ * R2DBC access for the reactive read endpoints, configured from the {@code spring.r2dbc.*} properties.
+ *
+ * <p>The connection pool is deliberately not a bean: Boot's DataSource auto-configuration backs off
+ * as soon as a {@code ConnectionFactory} bean exists, and JPA would go with it. Only the
+ * {@link DatabaseClient} is exposed, and the pool is closed with the context. Its statements count
+ * towards the request in the Reactor context, see {@link StatementCounter}.
+ */
+@Configuration(proxyBeanMethods = false)
+@EnableConfigurationProperties(R2dbcProperties.class)
+public class ReactiveDatabaseConfiguration implements DisposableBean {
+
+	private ConnectionPool connectionPool;
+
+	@Bean
+	DatabaseClient reactiveDatabaseClient(R2dbcProperties properties) {
+		connectionPool = new ConnectionPool(ConnectionPoolConfiguration
+				.builder(ConnectionFactoryBuilder.withUrl(properties.getUrl())
+						.username(properties.getUsername())
+						.password(properties.getPassword())
+						.build())
+				.maxSize(properties.getPool().getMaxSize())
+				.build());
+		return DatabaseClient.builder()
+				.connectionFactory(connectionPool)
+				.executeFunction(statement -> Flux.deferContextual(context -> {
+					StatementCounter.countReactive(context);
+					return statement.execute();
+				}))
+				.build();
+	}
+
+	@Override
+	public void destroy() {
+		if (connectionPool != null) {
+			connectionPool.dispose();
+		}
+	}
+}
@@ -0,0 +1,29 @@
+package com.luv2code.springmvc.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Scheduler that writes the streamed roster of the reactive endpoints.
+ *
+ * <p>Every student streamed is a blocking servlet write. Left to Spring MVC, those writes are
+ * handed off to the MVC async executor, which is shared with {@code /stream} and every other
+ * async request; Boot's default is the 8 thread {@code applicationTaskExecutor}, so 8 slow
+ * clients stalled every other stream. The reactive controller writes on this scheduler instead,
+ * whose {@code gradebook.reactive.write-threads} threads bound how many rosters are written at
+ * once, and leaves the MVC async executor to the other async requests.
+ *
+ * <p>A {@link Scheduler} is not an {@code Executor}, so unlike an executor bean it does not make
+ * Boot's task execution auto-configuration back off. It is disposed with the context.
+ */
+@Configuration(proxyBeanMethods = false)
+public class ReactiveWriteConfiguration {
+
+	@Bean(destroyMethod = "dispose")
+	public Scheduler reactiveWriteScheduler(@Value("${gradebook.reactive.write-threads:32}") int writeThreads) {
+		return Schedulers.newBoundedElastic(writeThreads, Schedulers.DEFAULT_BOUNDED_ELASTIC_QUEUESIZE, "reactive-write");
+	}
+}
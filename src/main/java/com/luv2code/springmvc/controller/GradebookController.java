@@ -1,127 +1,361 @@
 package com.luv2code.springmvc.controller;
 
-import com.luv2code.springmvc.exceptionhandling.StudentOrGradeErrorResponse;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.luv2code.springmvc.config.BinaryFormatConfiguration;
 import com.luv2code.springmvc.exceptionhandling.StudentOrGradeNotFoundException;
+import com.luv2code.springmvc.models.BulkGradeResult;
 import com.luv2code.springmvc.models.CollegeStudent;
+import com.luv2code.springmvc.models.CompactGradebookStudent;
 import com.luv2code.springmvc.models.Gradebook;
 import com.luv2code.springmvc.models.GradebookCollegeStudent;
+import com.luv2code.springmvc.models.RosterDelta;
+import com.luv2code.springmvc.models.StudentGrades;
+import com.luv2code.springmvc.models.SubjectRank;
+import com.luv2code.springmvc.models.SubjectStatistics;
+import com.luv2code.springmvc.service.CompactGradebookService;
+import com.luv2code.springmvc.service.GradeImportService;
+import com.luv2code.springmvc.service.GradeLeaderboard;
+import com.luv2code.springmvc.service.GradeStatisticsService;
+import com.luv2code.springmvc.service.GradeWriteBuffer;
+import com.luv2code.springmvc.service.GradebookSnapshotService;
 import com.luv2code.springmvc.service.StudentAndGradeService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 public class GradebookController {
 
+    private static final Logger log = LoggerFactory.getLogger(GradebookController.class);
+
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    public static final String ROSTER_VERSION_HEADER = "X-Roster-Version";
+
     @Autowired
     private StudentAndGradeService studentService;
 
     @Autowired
-    private Gradebook gradebook;
+    private GradeImportService gradeImportService;
+
+    @Autowired
+    private GradebookSnapshotService snapshotService;
+
+    @Autowired
+    private CompactGradebookService compactGradebookService;
+
+    @Autowired
+    private GradeWriteBuffer gradeWriteBuffer;
+
+    @Autowired
+    private GradeLeaderboard leaderboard;
+
+    @Autowired
+    private GradeStatisticsService gradeStatisticsService;
+
+    @Autowired
+    private ObjectMapper mapper;
 
 
     @RequestMapping(value = "/", method = RequestMethod.GET)
-    public List<GradebookCollegeStudent> getStudents() {
-        gradebook = studentService.getGradebook();
+    public ResponseEntity<?> getStudents(@RequestParam(value = "page", required = false) Integer page,
+                                         @RequestParam(value = "afterId", required = false) Integer afterId,
+                                         @RequestParam(value = "size", defaultValue = "100") int size,
+                                         WebRequest webRequest) {
+        //the snapshot is JSON, binary formats are serialized per request
+        GradebookSnapshotService.Snapshot snapshot = page == null && afterId == null
+                && !acceptsBinary(webRequest.getHeader(HttpHeaders.ACCEPT)) ? snapshotService.current() : null;
+        if (snapshot != null) {
+            if (webRequest.checkNotModified(snapshot.getETag())) {
+                return null;
+            }
+            return ResponseEntity.ok()
+                    .varyBy(HttpHeaders.ACCEPT)
+                    .header(ROSTER_VERSION_HEADER, String.valueOf(snapshot.getRosterVersion()))
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(snapshot.getJson());
+        }
+
+        long rosterVersion = studentService.getRosterVersion();
+        return withRosterVersion(rosterVersion, findStudents(page, afterId, size));
+    }
+
+    /**
+     * The full roster with each subject's grades as plain id and grade arrays, for read-only clients.
+     */
+    @GetMapping("/compact")
+    public ResponseEntity<List<CompactGradebookStudent>> getCompactStudents() {
+        long rosterVersion = studentService.getRosterVersion();
+        return withRosterVersion(rosterVersion, compactGradebookService.getGradebook());
+    }
+
+    /**
+     * School-wide statistics and grade histogram of every subject.
+     */
+    @GetMapping("/statistics")
+    public Map<String, SubjectStatistics> getStatistics() {
+        return gradeStatisticsService.getStatistics();
+    }
+
+    /**
+     * The best students of a subject by average, highest first.
+     */
+    @GetMapping("/leaderboard/{gradeType}")
+    public List<SubjectRank> getLeaderboard(@PathVariable String gradeType,
+                                            @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        return leaderboard.top(gradeType, limit);
+    }
+
+    /**
+     * A student's rank and percentile in a subject, 404 when the student has no grade in it.
+     */
+    @GetMapping("/leaderboard/{gradeType}/students/{id}")
+    public SubjectRank getSubjectRank(@PathVariable String gradeType, @PathVariable int id) {
+        gradeWriteBuffer.awaitPending(id);
+        SubjectRank rank = leaderboard.rank(id, gradeType);
+        if (rank == null) {
+            throw new StudentOrGradeNotFoundException("Student or Grade was not found");
+        }
+        return rank;
+    }
+
+    private static boolean acceptsBinary(String accept) {
+        if (accept == null) {
+            return false;
+        }
+        for (MediaType type : MediaType.parseMediaTypes(accept)) {
+            if (MediaType.APPLICATION_CBOR.includes(type) || BinaryFormatConfiguration.APPLICATION_SMILE.includes(type)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private List<GradebookCollegeStudent> findStudents(Integer page, Integer afterId, int size) {
+        if (page == null && afterId == null) {
+            return studentService.getGradebook().getStudents();
+        }
+
+        if (size < 1 || size > MAX_PAGE_SIZE || (page != null && page < 0)) {
+            throw new IllegalArgumentException("size must be between 1 and " + MAX_PAGE_SIZE + ", page must not be negative");
+        }
+
+        Gradebook gradebook;
+        if (afterId != null) {
+            gradebook = studentService.getGradebookAfter(afterId, size);
+        } else {
+            gradebook = studentService.getGradebook(PageRequest.of(page, size, Sort.by("id")));
+        }
         return gradebook.getStudents();
     }
 
 
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_JSON_VALUE)
+    public StreamingResponseBody streamStudents(@RequestParam(value = "size", defaultValue = "500") int size) {
+
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+
+        //students are written one at a time, only a single keyset page is held in memory
+        return outputStream -> {
+            try (JsonGenerator generator = mapper.getFactory().createGenerator(outputStream)) {
+                generator.writeStartArray();
+                int afterId = 0;
+                List<GradebookCollegeStudent> students;
+                do {
+                    students = studentService.getGradebookAfter(afterId, size).getStudents();
+                    for (GradebookCollegeStudent student : students) {
+                        mapper.writeValue(generator, student);
+                        afterId = student.getId();
+                    }
+                    generator.flush();
+                } while (students.size() == size);
+                generator.writeEndArray();
+            }
+        };
+    }
+
+
     @GetMapping("/studentInformation/{id}")
     public GradebookCollegeStudent studentInformation(@PathVariable int id) {
 
-        if (!studentService.checkIfStudentIsNull(id)) {
+        //read-your-writes for grades acknowledged by the write-behind buffer
+        gradeWriteBuffer.awaitPending(id);
+        GradebookCollegeStudent studentEntity = studentService.studentInformation(id);
+
+        if (studentEntity == null) {
             throw new StudentOrGradeNotFoundException("Student or Grade was not found");
         }
 
-        return studentService.studentInformation(id);
+        return studentEntity;
     }
 
 
+    /**
+     * Resolves a class page of students at once, as a map of id to student. Unknown ids are
+     * left out of the map rather than failing the batch.
+     */
+    @PostMapping(value = "/studentInformation/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public Map<Integer, GradebookCollegeStudent> studentsInformation(@RequestBody List<Integer> ids) {
+
+        if (ids.size() > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("At most " + MAX_PAGE_SIZE + " students can be requested at once");
+        }
+
+        ids.forEach(gradeWriteBuffer::awaitPending);
+        return studentService.studentsInformation(ids);
+    }
+
+    /**
+     * Creates a student. Email addresses are unique, so a second student with an address
+     * already on the roster is rejected with 400 and nothing is created.
+     */
     @PostMapping(value = "/")
-    public List<GradebookCollegeStudent> createStudent(@RequestBody CollegeStudent student) {
-        studentService.createStudent(student.getFirstname(), student.getLastname(), student.getEmailAddress());
-        gradebook = studentService.getGradebook();
-        return gradebook.getStudents();
+    public ResponseEntity<?> createStudent(@RequestBody CollegeStudent student,
+                                           @RequestParam(value = "delta", defaultValue = "false") boolean delta) {
+        CollegeStudent created = studentService.createStudent(student.getFirstname(), student.getLastname(),
+                student.getEmailAddress());
+        long rosterVersion = studentService.getRosterVersion();
+
+        if (delta) {
+            GradebookCollegeStudent createdStudent = new GradebookCollegeStudent(created.getId(), created.getFirstname(),
+                    created.getLastname(), created.getEmailAddress(), new StudentGrades());
+            return withRosterVersion(rosterVersion, new RosterDelta(RosterDelta.CREATED, rosterVersion, createdStudent));
+        }
+        return withRosterVersion(rosterVersion, studentService.getGradebook().getStudents());
     }
 
 
     @DeleteMapping("/student/{id}")
-    public List<GradebookCollegeStudent> deleteStudent(@PathVariable int id) {
-
-        if (!studentService.checkIfStudentIsNull(id)) {
+    public ResponseEntity<?> deleteStudent(@PathVariable int id,
+                                           @RequestParam(value = "delta", defaultValue = "false") boolean delta) {
+
+        GradebookCollegeStudent deletedStudent = null;
+        if (delta) {
+            deletedStudent = studentService.studentInformation(id);
+            if (deletedStudent == null) {
+                throw new StudentOrGradeNotFoundException("Student or Grade was not found");
+            }
+        } else if (!studentService.checkIfStudentIsNull(id)) {
             throw new StudentOrGradeNotFoundException("Student or Grade was not found");
         }
 
+        //grades acknowledged by the write-behind buffer are written, then deleted with the student
+        gradeWriteBuffer.awaitPending(id);
         studentService.deleteStudent(id);
-        gradebook = studentService.getGradebook();
-        return gradebook.getStudents();
+        long rosterVersion = studentService.getRosterVersion();
+
+        if (delta) {
+            return withRosterVersion(rosterVersion, new RosterDelta(RosterDelta.DELETED, rosterVersion, deletedStudent));
+        }
+        return withRosterVersion(rosterVersion, studentService.getGradebook().getStudents());
+    }
+
+    @DeleteMapping("/students")
+    public ResponseEntity<Map<String, Integer>> deleteStudents(@RequestParam("ids") List<Integer> ids) {
+
+        if (ids.size() > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("At most " + MAX_PAGE_SIZE + " students can be deleted at once");
+        }
+
+        ids.forEach(gradeWriteBuffer::awaitPending);
+        int deleted = studentService.deleteStudents(ids);
+        return withRosterVersion(studentService.getRosterVersion(), Map.of("deleted", deleted));
+    }
+
+    private static <T> ResponseEntity<T> withRosterVersion(long rosterVersion, T body) {
+        return ResponseEntity.ok()
+                .header(ROSTER_VERSION_HEADER, String.valueOf(rosterVersion))
+                .body(body);
     }
 
 
     @PostMapping(value = "/grades")
-    public GradebookCollegeStudent createGrade(@RequestParam("grade") double grade,
-                                               @RequestParam("gradeType") String gradeType,
-                                               @RequestParam("studentId") int studentId) {
+    public ResponseEntity<GradebookCollegeStudent> createGrade(@RequestParam("grade") double grade,
+                                                               @RequestParam("gradeType") String gradeType,
+                                                               @RequestParam("studentId") int studentId) {
         //more explanatory exception messages could have been used
         if (!studentService.checkIfStudentIsNull(studentId)) {
-            System.out.println("No student found");
+            log.debug("Grade not created, no student {}", studentId);
             throw new StudentOrGradeNotFoundException("Student or Grade was not found");
         }
 
+        if (gradeWriteBuffer.isEnabled()) {
+            return queueGrade(grade, gradeType, studentId);
+        }
+
         boolean success = studentService.createGrade(grade, studentId, gradeType);
 
         if (!success) {
-            System.out.println("grade problem");
+            log.debug("Grade not created for student {}, gradeType={} grade={}", studentId, gradeType, grade);
             throw new StudentOrGradeNotFoundException("Student or Grade was not found");
         }
 
         GradebookCollegeStudent studentEntity = studentService.studentInformation(studentId);
 
         if (studentEntity == null) {
-            System.out.println("grade problem");
+            log.debug("Student {} disappeared after creating a grade", studentId);
             throw new StudentOrGradeNotFoundException("Student or Grade was not found");
         }
 
-        return studentEntity;
+        return ResponseEntity.ok(studentEntity);
     }
 
-    @DeleteMapping("/grades/{id}/{gradeType}")
-    public GradebookCollegeStudent deleteGrade(@PathVariable int id, @PathVariable String gradeType) {
-
-        int studentId = studentService.deleteGrade(id, gradeType);
-
-        if (studentId == 0) {
+    /**
+     * Acknowledges the grade once queued, without a body since it is not written yet.
+     */
+    private ResponseEntity<GradebookCollegeStudent> queueGrade(double grade, String gradeType, int studentId) {
+        if (!GradeWriteBuffer.isValid(grade, gradeType)) {
+            log.debug("Grade not queued for student {}, gradeType={} grade={}", studentId, gradeType, grade);
             throw new StudentOrGradeNotFoundException("Student or Grade was not found");
         }
-
-        return studentService.studentInformation(studentId);
+        if (!gradeWriteBuffer.submit(studentId, gradeType, grade)) {
+            log.debug("Grade not queued for student {}, write-behind queue full", studentId);
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", "1").build();
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED).build();
     }
 
-    @ExceptionHandler
-    public ResponseEntity<StudentOrGradeErrorResponse> handleException(StudentOrGradeNotFoundException exc) {
-
-        StudentOrGradeErrorResponse error = new StudentOrGradeErrorResponse();
-
-        error.setStatus(HttpStatus.NOT_FOUND.value());
-        error.setMessage(exc.getMessage());
-        error.setTimeStamp(System.currentTimeMillis());
+    @PostMapping(value = "/grades/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public BulkGradeResult createGradesFromJson(InputStream body) throws IOException {
+        return gradeImportService.importJson(body);
+    }
 
-        return new ResponseEntity<>(error, HttpStatus.NOT_FOUND);
+    @PostMapping(value = "/grades/bulk", consumes = "text/csv")
+    public BulkGradeResult createGradesFromCsv(InputStream body) throws IOException {
+        return gradeImportService.importCsv(new InputStreamReader(body, StandardCharsets.UTF_8));
     }
 
-    @ExceptionHandler
-    public ResponseEntity<StudentOrGradeErrorResponse> handleException(Exception exc) {
+    @DeleteMapping("/grades/{id}/{gradeType}")
+    public GradebookCollegeStudent deleteGrade(@PathVariable int id, @PathVariable String gradeType) {
 
-        StudentOrGradeErrorResponse error = new StudentOrGradeErrorResponse();
+        int studentId = studentService.deleteGrade(id, gradeType);
 
-        error.setStatus(HttpStatus.BAD_REQUEST.value());
-        error.setMessage(exc.getMessage());
-        error.setTimeStamp(System.currentTimeMillis());
+        if (studentId == 0) {
+            throw new StudentOrGradeNotFoundException("Student or Grade was not found");
+        }
 
-        return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
+        return studentService.studentInformation(studentId);
     }
 }
@@ -0,0 +1,116 @@
+package com.luv2code.springmvc.controller;
+
+import com.luv2code.springmvc.exceptionhandling.StudentOrGradeNotFoundException;
+import com.luv2code.springmvc.metrics.StatementCounter;
+import com.luv2code.springmvc.models.GradebookCollegeStudent;
+import com.luv2code.springmvc.service.GradeWriteBuffer;
+import com.luv2code.springmvc.service.ReactiveGradebookService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import reactor.core.Disposable;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Non-blocking variants of the read endpoints. The request thread is released while the
+ * query runs, and the roster is written one student at a time as newline-delimited JSON.
+ *
+ * <p>The roster is written on the reactive write scheduler rather than handed to Spring MVC as
+ * a {@code Flux}, which would write it on the MVC async executor shared with every other async
+ * request.
+ */
+@RestController
+@RequestMapping("/reactive")
+public class ReactiveGradebookController {
+
+    @Autowired
+    private ReactiveGradebookService reactiveGradebookService;
+
+    @Autowired
+    private GradeWriteBuffer gradeWriteBuffer;
+
+    @Autowired
+    private Scheduler reactiveWriteScheduler;
+
+    @GetMapping(value = "/", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<ResponseBodyEmitter> getStudents(
+            @RequestHeader(value = HttpHeaders.ACCEPT, defaultValue = MediaType.ALL_VALUE) String accept) {
+        boolean lines = streamRequested(accept);
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter();
+        Disposable writes = lines ? writeLines(emitter) : writeArray(emitter);
+        emitter.onTimeout(writes::dispose);
+        emitter.onError(e -> writes.dispose());
+        return ResponseEntity.ok()
+                .contentType(lines ? MediaType.APPLICATION_NDJSON : MediaType.APPLICATION_JSON)
+                .body(emitter);
+    }
+
+    /**
+     * Waits for the student's queued grades first, like the blocking endpoint; that only blocks
+     * while write-behind grades of this student are still queued.
+     */
+    @GetMapping("/studentInformation/{id}")
+    public Mono<GradebookCollegeStudent> studentInformation(@PathVariable int id) {
+        gradeWriteBuffer.awaitPending(id);
+        return reactiveGradebookService.studentInformation(id)
+                .switchIfEmpty(Mono.error(() -> new StudentOrGradeNotFoundException("Student or Grade was not found")))
+                .contextWrite(StatementCounter.reactorContext());
+    }
+
+    private Disposable writeLines(ResponseBodyEmitter emitter) {
+        return reactiveGradebookService.getGradebook()
+                .contextWrite(StatementCounter.reactorContext())
+                .publishOn(reactiveWriteScheduler, 1)
+                .subscribe(student -> {
+                    send(emitter, student, MediaType.APPLICATION_JSON);
+                    send(emitter, "\n", MediaType.TEXT_PLAIN);
+                }, emitter::completeWithError, emitter::complete);
+    }
+
+    private Disposable writeArray(ResponseBodyEmitter emitter) {
+        return reactiveGradebookService.getGradebook()
+                .collectList()
+                .contextWrite(StatementCounter.reactorContext())
+                .publishOn(reactiveWriteScheduler)
+                .subscribe(students -> send(emitter, students, MediaType.APPLICATION_JSON),
+                        emitter::completeWithError, emitter::complete);
+    }
+
+    private static void send(ResponseBodyEmitter emitter, Object data, MediaType mediaType) {
+        try {
+            emitter.send(data, mediaType);
+        } catch (IOException e) {
+            //cancels the query, the emitter already completed with the error
+            throw Exceptions.propagate(e);
+        }
+    }
+
+    /**
+     * Newline-delimited JSON unless the client prefers a JSON array.
+     */
+    private static boolean streamRequested(String accept) {
+        List<MediaType> accepted = MediaType.parseMediaTypes(accept);
+        MediaType.sortBySpecificityAndQuality(accepted);
+        for (MediaType mediaType : accepted) {
+            if (mediaType.isCompatibleWith(MediaType.APPLICATION_NDJSON)) {
+                return true;
+            }
+            if (mediaType.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
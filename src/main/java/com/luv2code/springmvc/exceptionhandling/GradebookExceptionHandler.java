@@ -0,0 +1,35 @@
+package com.luv2code.springmvc.exceptionhandling;
+
+import com.luv2code.springmvc.controller.GradebookController;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+@RestControllerAdvice(basePackageClasses = GradebookController.class)
+public class GradebookExceptionHandler {
+
+    @ExceptionHandler
+    public ResponseEntity<StudentOrGradeErrorResponse> handleException(StudentOrGradeNotFoundException exc) {
+
+        StudentOrGradeErrorResponse error = new StudentOrGradeErrorResponse();
+
+        error.setStatus(HttpStatus.NOT_FOUND.value());
+        error.setMessage(exc.getMessage());
+        error.setTimeStamp(System.currentTimeMillis());
+
+        return new ResponseEntity<>(error, HttpStatus.NOT_FOUND);
+    }
+
+    @ExceptionHandler
+    public ResponseEntity<StudentOrGradeErrorResponse> handleException(Exception exc) {
+
+        StudentOrGradeErrorResponse error = new StudentOrGradeErrorResponse();
+
+        error.setStatus(HttpStatus.BAD_REQUEST.value());
+        error.setMessage(exc.getMessage());
+        error.setTimeStamp(System.currentTimeMillis());
+
+        return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
+    }
+}
@@ -0,0 +1,32 @@
+package com.luv2code.springmvc.metrics;
+
+import com.luv2code.springmvc.models.HistoryGrade;
+import com.luv2code.springmvc.models.MathGrade;
+import com.luv2code.springmvc.models.ScienceGrade;
+
+/**
+ * gradeType comes from user input, tag values are limited to the known subjects to keep cardinality bounded.
+ */
+final class GradeTypes {
+
+    static final String TAG = "gradeType";
+
+    static final String NONE = "none";
+
+    private GradeTypes() {
+    }
+
+    static String tagValue(String gradeType) {
+        if (gradeType == null) {
+            return NONE;
+        }
+        switch (gradeType) {
+            case MathGrade.SUBJECT:
+            case ScienceGrade.SUBJECT:
+            case HistoryGrade.SUBJECT:
+                return gradeType;
+            default:
+                return "other";
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.luv2code.springmvc.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.actuate.metrics.web.servlet.WebMvcTagsContributor;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.sql.DataSource;
+import javax.servlet.http.HttpServletResponse;
+import java.util.List;
+import java.util.Map;
+
+@Configuration(proxyBeanMethods = false)
+public class MetricsConfiguration {
+
+    /**
+     * Counts the statements of every DataSource, whichever way they are issued, see {@link StatementCounter}.
+     */
+    @Bean
+    static BeanPostProcessor statementCountingDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource) {
+                    return ProxyDataSourceBuilder.create(beanName, (DataSource) bean)
+                            .listener(new StatementCounter())
+                            .build();
+                }
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * Carries the request's statement count to the MVC async executor, which writes streamed responses.
+     */
+    @Bean
+    TaskDecorator statementCountingTaskDecorator() {
+        return StatementCounter::propagate;
+    }
+
+    @Bean
+    FilterRegistrationBean<RequestStatementsFilter> requestStatementsFilter(MeterRegistry registry) {
+        return new FilterRegistrationBean<>(new RequestStatementsFilter(registry));
+    }
+
+    /**
+     * Adds the grade type, from the request parameter or path variable, to {@code http.server.requests}.
+     */
+    @Bean
+    WebMvcTagsContributor gradeTypeTagsContributor() {
+        return new WebMvcTagsContributor() {
+
+            @Override
+            public Iterable<Tag> getTags(HttpServletRequest request, HttpServletResponse response,
+                                         Object handler, Throwable exception) {
+                String gradeType = request.getParameter(GradeTypes.TAG);
+                if (gradeType == null) {
+                    Object variables = request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+                    if (variables instanceof Map) {
+                        gradeType = (String) ((Map<?, ?>) variables).get(GradeTypes.TAG);
+                    }
+                }
+                return List.of(Tag.of(GradeTypes.TAG, GradeTypes.tagValue(gradeType)));
+            }
+
+            @Override
+            public Iterable<Tag> getLongRequestTags(HttpServletRequest request, Object handler) {
+                return List.of();
+            }
+        };
+    }
+}
@@ -0,0 +1,74 @@
+package com.luv2code.springmvc.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Records the number of database round trips of each request as {@code gradebook.db.statements},
+ * tagged with the matched URI pattern. Asynchronous requests, streamed or reactive, are recorded
+ * when they complete, so the statements run after the request thread returned are included.
+ */
+public class RequestStatementsFilter extends OncePerRequestFilter {
+
+    static final String METRIC_NAME = "gradebook.db.statements";
+
+    private final MeterRegistry registry;
+
+    public RequestStatementsFilter(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        AtomicInteger statements = StatementCounter.start();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            StatementCounter.stop();
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new AsyncListener() {
+
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        record(request, statements.get());
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+            } else {
+                record(request, statements.get());
+            }
+        }
+    }
+
+    private void record(HttpServletRequest request, int statements) {
+        Object uri = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        DistributionSummary.builder(METRIC_NAME)
+                .baseUnit("statements")
+                .tag("uri", uri != null ? uri.toString() : "UNKNOWN")
+                .register(registry)
+                .record(statements);
+    }
+}
@@ -0,0 +1,59 @@
+package com.luv2code.springmvc.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.stereotype.Component;
+
+/**
+ * Times every public method of {@code StudentAndGradeService} as {@code gradebook.service},
+ * tagged with the method, the outcome, the exception and the grade type when the method takes one.
+ * Percentiles are configured with the {@code management.metrics.distribution.*} properties.
+ */
+@Aspect
+@Component
+public class ServiceMetricsAspect {
+
+    static final String METRIC_NAME = "gradebook.service";
+
+    private final MeterRegistry registry;
+
+    public ServiceMetricsAspect(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Around("execution(public * com.luv2code.springmvc.service.StudentAndGradeService.*(..))")
+    public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+        Timer.Sample sample = Timer.start(registry);
+        String exception = "none";
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable e) {
+            exception = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            sample.stop(Timer.builder(METRIC_NAME)
+                    .tag("method", joinPoint.getSignature().getName())
+                    .tag("outcome", "none".equals(exception) ? "SUCCESS" : "ERROR")
+                    .tag("exception", exception)
+                    .tag(GradeTypes.TAG, GradeTypes.tagValue(gradeType(joinPoint)))
+                    .register(registry));
+        }
+    }
+
+    private static String gradeType(ProceedingJoinPoint joinPoint) {
+        String[] names = ((MethodSignature) joinPoint.getSignature()).getParameterNames();
+        if (names == null) {
+            return null;
+        }
+        for (int i = 0; i < names.length; i++) {
+            if (GradeTypes.TAG.equals(names[i])) {
+                return (String) joinPoint.getArgs()[i];
+            }
+        }
+        return null;
+    }
+}
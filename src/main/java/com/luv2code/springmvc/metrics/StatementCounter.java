@@ -0,0 +1,101 @@
+package com.luv2code.springmvc.metrics;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Counts the statements executed for the current request, JDBC ones at the DataSource, so JPA
+ * and JdbcTemplate alike, and R2DBC ones as they are executed. A batch is one round trip.
+ *
+ * <p>The count belongs to the request, not to a thread: it is bound to the request thread and
+ * carried to the threads that work for the request, the parallel read pool and the MVC async
+ * executor through {@link #propagate}, and reactive queries through the Reactor context.
+ * Statements of background threads, e.g. the write-behind writer, belong to no request.
+ */
+public class StatementCounter implements QueryExecutionListener {
+
+    private static final ThreadLocal<AtomicInteger> CURRENT = new ThreadLocal<>();
+
+    private static final String CONTEXT_KEY = StatementCounter.class.getName();
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        increment(CURRENT.get());
+    }
+
+    /**
+     * Binds a new count to the calling thread and returns it.
+     */
+    static AtomicInteger start() {
+        AtomicInteger statements = new AtomicInteger();
+        CURRENT.set(statements);
+        return statements;
+    }
+
+    static void stop() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Wraps the task so it counts towards the request of the calling thread, whichever thread runs it.
+     */
+    public static <T> Supplier<T> propagate(Supplier<T> task) {
+        AtomicInteger statements = CURRENT.get();
+        if (statements == null) {
+            return task;
+        }
+        return () -> {
+            AtomicInteger previous = CURRENT.get();
+            CURRENT.set(statements);
+            try {
+                return task.get();
+            } finally {
+                if (previous != null) {
+                    CURRENT.set(previous);
+                } else {
+                    CURRENT.remove();
+                }
+            }
+        };
+    }
+
+    public static Runnable propagate(Runnable task) {
+        Supplier<Void> counted = propagate(() -> {
+            task.run();
+            return null;
+        });
+        return counted::get;
+    }
+
+    /**
+     * The request count of the calling thread as a Reactor context, for reactive queries.
+     */
+    public static ContextView reactorContext() {
+        AtomicInteger statements = CURRENT.get();
+        return statements != null ? Context.of(CONTEXT_KEY, statements) : Context.empty();
+    }
+
+    /**
+     * Counts one reactive statement towards the request in the context, if any.
+     */
+    public static void countReactive(ContextView context) {
+        increment(context.getOrDefault(CONTEXT_KEY, null));
+    }
+
+    private static void increment(AtomicInteger statements) {
+        if (statements != null) {
+            statements.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.luv2code.springmvc.models;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BulkGradeResult {
+
+    private int accepted;
+
+    private final List<RejectedRow> rejected = new ArrayList<>();
+
+    public void addAccepted(int count) {
+        accepted += count;
+    }
+
+    public void reject(long row, String reason) {
+        rejected.add(new RejectedRow(row, reason));
+    }
+
+    public int getAccepted() {
+        return accepted;
+    }
+
+    public List<RejectedRow> getRejected() {
+        return rejected;
+    }
+
+    public static class RejectedRow {
+
+        private final long row;
+
+        private final String reason;
+
+        public RejectedRow(long row, String reason) {
+            this.row = row;
+            this.reason = reason;
+        }
+
+        public long getRow() {
+            return row;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.luv2code.springmvc.models;
+
+public class BulkGradeRow {
+
+    private int studentId;
+
+    private String gradeType;
+
+    private double grade;
+
+    public BulkGradeRow() {
+
+    }
+
+    public BulkGradeRow(int studentId, String gradeType, double grade) {
+        this.studentId = studentId;
+        this.gradeType = gradeType;
+        this.grade = grade;
+    }
+
+    public int getStudentId() {
+        return studentId;
+    }
+
+    public void setStudentId(int studentId) {
+        this.studentId = studentId;
+    }
+
+    public String getGradeType() {
+        return gradeType;
+    }
+
+    public void setGradeType(String gradeType) {
+        this.gradeType = gradeType;
+    }
+
+    public double getGrade() {
+        return grade;
+    }
+
+    public void setGrade(double grade) {
+        this.grade = grade;
+    }
+}
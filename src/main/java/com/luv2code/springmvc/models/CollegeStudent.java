@@ -3,7 +3,7 @@ package com.luv2code.springmvc.models;
 import javax.persistence.*;
 
 @Entity
-@Table(name = "student")
+@Table(name = "student", indexes = @Index(name = "uk_student_email_address", columnList = "email_address", unique = true))
 public class CollegeStudent implements Student {
     @Id
     @GeneratedValue(strategy= GenerationType.IDENTITY)
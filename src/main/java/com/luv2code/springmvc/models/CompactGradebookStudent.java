@@ -0,0 +1,60 @@
+package com.luv2code.springmvc.models;
+
+/**
+ * Read-only roster entry with the grades held in primitive arrays instead of grade entities.
+ */
+public class CompactGradebookStudent {
+
+    private final int id;
+
+    private final String firstname;
+
+    private final String lastname;
+
+    private final String emailAddress;
+
+    private final CompactSubjectGrades math;
+
+    private final CompactSubjectGrades science;
+
+    private final CompactSubjectGrades history;
+
+    public CompactGradebookStudent(int id, String firstname, String lastname, String emailAddress,
+                                   CompactSubjectGrades math, CompactSubjectGrades science, CompactSubjectGrades history) {
+        this.id = id;
+        this.firstname = firstname;
+        this.lastname = lastname;
+        this.emailAddress = emailAddress;
+        this.math = math;
+        this.science = science;
+        this.history = history;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getFirstname() {
+        return firstname;
+    }
+
+    public String getLastname() {
+        return lastname;
+    }
+
+    public String getEmailAddress() {
+        return emailAddress;
+    }
+
+    public CompactSubjectGrades getMath() {
+        return math;
+    }
+
+    public CompactSubjectGrades getScience() {
+        return science;
+    }
+
+    public CompactSubjectGrades getHistory() {
+        return history;
+    }
+}
@@ -0,0 +1,38 @@
+package com.luv2code.springmvc.models;
+
+/**
+ * One student's grades in one subject as parallel primitive arrays, ordered by grade id.
+ * Used by the read-only compact roster; the arrays are shared and must not be modified.
+ */
+public class CompactSubjectGrades {
+
+    public static final CompactSubjectGrades EMPTY = new CompactSubjectGrades(new int[0], new double[0]);
+
+    private final int[] ids;
+
+    private final double[] grades;
+
+    public CompactSubjectGrades(int[] ids, double[] grades) {
+        if (ids.length != grades.length) {
+            throw new IllegalArgumentException("ids and grades must have the same length");
+        }
+        this.ids = ids;
+        this.grades = grades;
+    }
+
+    public int[] getIds() {
+        return ids;
+    }
+
+    public double[] getGrades() {
+        return grades;
+    }
+
+    public Double getAverage() {
+        double sum = 0;
+        for (double grade : grades) {
+            sum += grade;
+        }
+        return SubjectGradeSummary.roundedAverage(sum, grades.length);
+    }
+}
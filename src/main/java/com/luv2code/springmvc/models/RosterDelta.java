@@ -0,0 +1,37 @@
+package com.luv2code.springmvc.models;
+
+/**
+ * The single student changed by a create or delete, plus the roster version after
+ * the change. A client whose copy is not at {@code rosterVersion - 1} has missed a
+ * change and should reload the full roster.
+ */
+public class RosterDelta {
+
+    public static final String CREATED = "created";
+
+    public static final String DELETED = "deleted";
+
+    private final String change;
+
+    private final long rosterVersion;
+
+    private final GradebookCollegeStudent student;
+
+    public RosterDelta(String change, long rosterVersion, GradebookCollegeStudent student) {
+        this.change = change;
+        this.rosterVersion = rosterVersion;
+        this.student = student;
+    }
+
+    public String getChange() {
+        return change;
+    }
+
+    public long getRosterVersion() {
+        return rosterVersion;
+    }
+
+    public GradebookCollegeStudent getStudent() {
+        return student;
+    }
+}
@@ -1,48 +1,24 @@
 package com.luv2code.springmvc.models;
 
-import javax.persistence.*;
+import javax.persistence.DiscriminatorValue;
+import javax.persistence.Entity;
 
 @Entity
-@Table(name = "science_grade")
-public class ScienceGrade implements Grade {
-    @Id
-    @GeneratedValue(strategy= GenerationType.IDENTITY)
-    private int id;
-    @Column(name="student_id")
-    private int studentId;
-    @Column(name="grade")
-    private double grade;
+@DiscriminatorValue(ScienceGrade.SUBJECT)
+public class ScienceGrade extends SubjectGrade {
+
+    public static final String SUBJECT = "science";
 
     public ScienceGrade() {
 
     }
 
     public ScienceGrade(double grade) {
-        this.grade = grade;
-    }
-
-    public int getId() {
-        return id;
-    }
-
-    public void setId(int id) {
-        this.id = id;
-    }
-
-    public int getStudentId() {
-        return studentId;
-    }
-
-    public void setStudentId(int studentId) {
-        this.studentId = studentId;
+        super(grade);
     }
 
     @Override
-    public double getGrade() {
-        return grade;
-    }
-
-    public void setGrade(double grade) {
-        this.grade = grade;
+    public String getSubject() {
+        return SUBJECT;
     }
 }
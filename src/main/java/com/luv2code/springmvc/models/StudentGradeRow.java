@@ -0,0 +1,22 @@
+package com.luv2code.springmvc.models;
+
+/**
+ * One row of a student joined with one of their grades. Students without grades
+ * come back as a single row whose grade columns are null.
+ */
+public interface StudentGradeRow {
+
+    int getStudentId();
+
+    String getFirstname();
+
+    String getLastname();
+
+    String getEmailAddress();
+
+    String getSubject();
+
+    Integer getGradeId();
+
+    Double getGrade();
+}
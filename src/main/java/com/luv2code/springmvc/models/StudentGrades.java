@@ -1,21 +1,42 @@
 package com.luv2code.springmvc.models;
 
-import org.springframework.stereotype.Component;
-
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.List;
 
-@Component
 public class StudentGrades {
 
-    List<Grade> mathGradeResults;
+    private final List<Grade> mathGradeResults;
+
+    private final List<Grade> scienceGradeResults;
+
+    private final List<Grade> historyGradeResults;
 
-    List<Grade> scienceGradeResults;
+    private final SubjectGradeSummary mathGradeSummary;
 
-    List<Grade> historyGradeResults;
+    private final SubjectGradeSummary scienceGradeSummary;
 
-    public StudentGrades() {}
+    private final SubjectGradeSummary historyGradeSummary;
+
+    public StudentGrades() {
+        this(List.of(), List.of(), List.of());
+    }
+
+    public StudentGrades(List<Grade> mathGradeResults, List<Grade> scienceGradeResults, List<Grade> historyGradeResults) {
+        this(mathGradeResults, scienceGradeResults, historyGradeResults, SubjectGradeSummary.of(mathGradeResults),
+                SubjectGradeSummary.of(scienceGradeResults), SubjectGradeSummary.of(historyGradeResults));
+    }
+
+    public StudentGrades(List<Grade> mathGradeResults, List<Grade> scienceGradeResults, List<Grade> historyGradeResults,
+                         SubjectGradeSummary mathGradeSummary, SubjectGradeSummary scienceGradeSummary,
+                         SubjectGradeSummary historyGradeSummary) {
+        this.mathGradeResults = List.copyOf(mathGradeResults);
+        this.scienceGradeResults = List.copyOf(scienceGradeResults);
+        this.historyGradeResults = List.copyOf(historyGradeResults);
+        this.mathGradeSummary = mathGradeSummary;
+        this.scienceGradeSummary = scienceGradeSummary;
+        this.historyGradeSummary = historyGradeSummary;
+    }
 
     public double addGradeResultsForSingleClass(List<Grade> grades) {
         double result = 0;
@@ -41,24 +62,24 @@ public class StudentGrades {
         return mathGradeResults;
     }
 
-    public void setMathGradeResults(List<Grade> mathGradeResults) {
-        this.mathGradeResults = mathGradeResults;
-    }
-
     public List<Grade> getScienceGradeResults() {
         return scienceGradeResults;
     }
 
-    public void setScienceGradeResults(List<Grade> scienceGradeResults) {
-        this.scienceGradeResults = scienceGradeResults;
-    }
-
     public List<Grade> getHistoryGradeResults() {
         return historyGradeResults;
     }
 
-    public void setHistoryGradeResults(List<Grade> historyGradeResults) {
-        this.historyGradeResults = historyGradeResults;
+    public SubjectGradeSummary getMathGradeSummary() {
+        return mathGradeSummary;
+    }
+
+    public SubjectGradeSummary getScienceGradeSummary() {
+        return scienceGradeSummary;
+    }
+
+    public SubjectGradeSummary getHistoryGradeSummary() {
+        return historyGradeSummary;
     }
 
     @Override
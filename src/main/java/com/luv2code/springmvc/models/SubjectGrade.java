@@ -0,0 +1,75 @@
+package com.luv2code.springmvc.models;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import javax.persistence.*;
+
+/**
+ * All subjects share the single {@code grade} table, the {@code subject} column
+ * tells them apart. Reads by student use the (student_id, subject) index.
+ */
+@Entity
+@Table(name = "grade", indexes = @Index(name = "idx_grade_student_subject", columnList = "student_id, subject"))
+@Inheritance(strategy = InheritanceType.SINGLE_TABLE)
+@DiscriminatorColumn(name = "subject", discriminatorType = DiscriminatorType.STRING, length = 16)
+public abstract class SubjectGrade implements Grade {
+    @Id
+    @GeneratedValue(strategy= GenerationType.IDENTITY)
+    private int id;
+    @Column(name="student_id")
+    private int studentId;
+    @Column(name="grade")
+    private double grade;
+
+    protected SubjectGrade() {
+
+    }
+
+    protected SubjectGrade(double grade) {
+        this.grade = grade;
+    }
+
+    /**
+     * Returns a new, unsaved grade for the given subject, or null for an unknown subject.
+     */
+    public static SubjectGrade create(String subject, double grade) {
+        switch (subject) {
+            case MathGrade.SUBJECT:
+                return new MathGrade(grade);
+            case ScienceGrade.SUBJECT:
+                return new ScienceGrade(grade);
+            case HistoryGrade.SUBJECT:
+                return new HistoryGrade(grade);
+            default:
+                return null;
+        }
+    }
+
+    @JsonIgnore
+    public abstract String getSubject();
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public int getStudentId() {
+        return studentId;
+    }
+
+    public void setStudentId(int studentId) {
+        this.studentId = studentId;
+    }
+
+    @Override
+    public double getGrade() {
+        return grade;
+    }
+
+    public void setGrade(double grade) {
+        this.grade = grade;
+    }
+}
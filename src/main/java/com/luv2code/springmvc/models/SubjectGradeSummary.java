@@ -0,0 +1,88 @@
+package com.luv2code.springmvc.models;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+
+/**
+ * Running count, sum, min and max of one student's grades in one subject.
+ * Instances are immutable, {@link #add} and {@link #remove} return updated copies.
+ */
+public class SubjectGradeSummary {
+
+    public static final SubjectGradeSummary EMPTY =
+            new SubjectGradeSummary(0, 0, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY);
+
+    private final int count;
+
+    private final double sum;
+
+    private final double min;
+
+    private final double max;
+
+    private SubjectGradeSummary(int count, double sum, double min, double max) {
+        this.count = count;
+        this.sum = sum;
+        this.min = min;
+        this.max = max;
+    }
+
+    public static SubjectGradeSummary of(List<Grade> grades) {
+        SubjectGradeSummary summary = EMPTY;
+        for (Grade grade : grades) {
+            summary = summary.add(grade.getGrade());
+        }
+        return summary;
+    }
+
+    public SubjectGradeSummary add(double grade) {
+        return new SubjectGradeSummary(count + 1, sum + grade, Math.min(min, grade), Math.max(max, grade));
+    }
+
+    /**
+     * Returns null when the removed grade was the current min or max, as the
+     * new bound cannot be known without looking at the remaining grades.
+     */
+    public SubjectGradeSummary remove(double grade) {
+        if (count <= 1) {
+            return EMPTY;
+        }
+        if (grade == min || grade == max) {
+            return null;
+        }
+        return new SubjectGradeSummary(count - 1, sum - grade, min, max);
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public double getSum() {
+        return sum;
+    }
+
+    public Double getMin() {
+        return count == 0 ? null : min;
+    }
+
+    public Double getMax() {
+        return count == 0 ? null : max;
+    }
+
+    public Double getAverage() {
+        return roundedAverage(sum, count);
+    }
+
+    /**
+     * The average rounded half up to two decimals, or null when there are no grades.
+     */
+    static Double roundedAverage(double sum, int count) {
+        if (count == 0) {
+            return null;
+        }
+        BigDecimal resultRound = BigDecimal.valueOf(sum / count);
+        resultRound = resultRound.setScale(2, RoundingMode.HALF_UP);
+        return resultRound.doubleValue();
+    }
+}
@@ -0,0 +1,54 @@
+package com.luv2code.springmvc.models;
+
+/**
+ * A student's standing in one subject, by average grade. Students sharing an average share
+ * a rank. The percentile rank is the share of the subject's students below the student,
+ * counting ties as half.
+ */
+public class SubjectRank {
+
+    private final int studentId;
+
+    private final String subject;
+
+    private final double average;
+
+    private final int rank;
+
+    private final double percentile;
+
+    private final int rankedStudents;
+
+    public SubjectRank(int studentId, String subject, double average, int rank, double percentile, int rankedStudents) {
+        this.studentId = studentId;
+        this.subject = subject;
+        this.average = average;
+        this.rank = rank;
+        this.percentile = percentile;
+        this.rankedStudents = rankedStudents;
+    }
+
+    public int getStudentId() {
+        return studentId;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public double getAverage() {
+        return average;
+    }
+
+    public int getRank() {
+        return rank;
+    }
+
+    public double getPercentile() {
+        return percentile;
+    }
+
+    public int getRankedStudents() {
+        return rankedStudents;
+    }
+}
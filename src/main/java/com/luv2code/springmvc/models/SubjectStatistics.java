@@ -0,0 +1,102 @@
+package com.luv2code.springmvc.models;
+
+/**
+ * School-wide statistics of one subject's grades. Values are null when the subject has no
+ * grades. The histogram counts grades in ten buckets of width 10, the last one, 90 to 100,
+ * including 100. Percentiles interpolate linearly between the two closest grades.
+ */
+public class SubjectStatistics {
+
+    public static final int HISTOGRAM_BUCKETS = 10;
+
+    private final String subject;
+
+    private final long count;
+
+    private final Double mean;
+
+    private final Double standardDeviation;
+
+    private final Double min;
+
+    private final Double max;
+
+    private final long[] histogram = new long[HISTOGRAM_BUCKETS];
+
+    private Double p25;
+
+    private Double median;
+
+    private Double p75;
+
+    private Double p90;
+
+    public SubjectStatistics(String subject, long count, Double mean, Double standardDeviation, Double min, Double max) {
+        this.subject = subject;
+        this.count = count;
+        this.mean = mean;
+        this.standardDeviation = standardDeviation;
+        this.min = min;
+        this.max = max;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public Double getMean() {
+        return mean;
+    }
+
+    public Double getStandardDeviation() {
+        return standardDeviation;
+    }
+
+    public Double getMin() {
+        return min;
+    }
+
+    public Double getMax() {
+        return max;
+    }
+
+    public long[] getHistogram() {
+        return histogram;
+    }
+
+    public Double getP25() {
+        return p25;
+    }
+
+    public void setP25(Double p25) {
+        this.p25 = p25;
+    }
+
+    public Double getMedian() {
+        return median;
+    }
+
+    public void setMedian(Double median) {
+        this.median = median;
+    }
+
+    public Double getP75() {
+        return p75;
+    }
+
+    public void setP75(Double p75) {
+        this.p75 = p75;
+    }
+
+    public Double getP90() {
+        return p90;
+    }
+
+    public void setP90(Double p90) {
+        this.p90 = p90;
+    }
+}
@@ -0,0 +1,34 @@
+package com.luv2code.springmvc.repository;
+
+import com.luv2code.springmvc.models.SubjectGrade;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+
+@Repository
+public interface GradeDao extends PagingAndSortingRepository<SubjectGrade, Integer> {
+
+    public Iterable<SubjectGrade> findGradeByStudentId (int id);
+
+    public Iterable<SubjectGrade> findGradeByStudentIdIn (Collection<Integer> ids);
+
+    /**
+     * Inserts the grade only while its student exists, so a grade racing a delete of its
+     * student is not left behind.
+     *
+     * @return 1 when the grade was inserted, 0 when there is no such student
+     */
+    @Modifying
+    @Query(value = "insert into grade(student_id, subject, grade) select id, :subject, :grade from student where id = :studentId",
+            nativeQuery = true)
+    public int insertIfStudentExists(@Param("studentId") int studentId, @Param("subject") String subject,
+                                     @Param("grade") double grade);
+
+    @Modifying
+    @Query("delete from SubjectGrade g where g.studentId in :studentIds")
+    public int deleteAllByStudentIdIn(@Param("studentIds") Collection<Integer> studentIds);
+}
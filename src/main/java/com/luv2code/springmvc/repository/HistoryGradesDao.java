@@ -1,13 +0,0 @@
-package com.luv2code.springmvc.repository;
-
-import com.luv2code.springmvc.models.HistoryGrade;
-import org.springframework.data.repository.CrudRepository;
-import org.springframework.stereotype.Repository;
-
-@Repository
-public interface HistoryGradesDao extends CrudRepository<HistoryGrade, Integer> {
-
-    public Iterable<HistoryGrade> findGradeByStudentId (int id);
-
-    public void deleteByStudentId(int id);
-}
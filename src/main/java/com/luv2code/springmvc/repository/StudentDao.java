@@ -1,13 +1,34 @@
 package com.luv2code.springmvc.repository;
 
 import com.luv2code.springmvc.models.CollegeStudent;
-import org.springframework.data.repository.CrudRepository;
+import com.luv2code.springmvc.models.StudentGradeRow;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface StudentDao extends CrudRepository<CollegeStudent, Integer> {
+public interface StudentDao extends PagingAndSortingRepository<CollegeStudent, Integer> {
 
     Optional<CollegeStudent> findByEmailAddress(String emailAddress);
+
+    List<CollegeStudent> findByIdGreaterThanOrderByIdAsc(int id, Pageable pageable);
+
+    List<CollegeStudent> findByIdIn(Collection<Integer> ids);
+
+    @Query(value = "select s.id as studentId, s.firstname as firstname, s.lastname as lastname, " +
+            "s.email_address as emailAddress, g.subject as subject, g.id as gradeId, g.grade as grade " +
+            "from student s left join grade g on g.student_id = s.id " +
+            "where s.id = :id", nativeQuery = true)
+    List<StudentGradeRow> findStudentWithGrades(@Param("id") int id);
+
+    @Modifying
+    @Query("delete from CollegeStudent s where s.id in :ids")
+    int deleteAllByIdIn(@Param("ids") Collection<Integer> ids);
 }
@@ -0,0 +1,127 @@
+package com.luv2code.springmvc.service;
+
+import com.luv2code.springmvc.models.CompactGradebookStudent;
+import com.luv2code.springmvc.models.CompactSubjectGrades;
+import com.luv2code.springmvc.models.HistoryGrade;
+import com.luv2code.springmvc.models.MathGrade;
+import com.luv2code.springmvc.models.ScienceGrade;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Builds the read-only compact roster straight from column projections, without grade entities.
+ *
+ * <p>Students and grades are both read ordered by student id and merged in one pass, grades
+ * being appended to reusable primitive buffers, so no per-grade object is created. Grades of
+ * students that are not in the roster are skipped.
+ */
+@Service
+@Transactional(readOnly = true)
+public class CompactGradebookService {
+
+	private static final String STUDENTS_SQL = "select id, firstname, lastname, email_address from student order by id";
+
+	private static final String GRADES_SQL = "select student_id, subject, id, grade from grade order by student_id, subject, id";
+
+	@Autowired
+	private JdbcTemplate jdbc;
+
+	public List<CompactGradebookStudent> getGradebook() {
+
+		List<StudentColumns> students = jdbc.query(STUDENTS_SQL, (rs, rowNum) ->
+				new StudentColumns(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getString(4)));
+
+		List<CompactGradebookStudent> gradebook = new ArrayList<>(students.size());
+		GradeBuffer[] buffers = {new GradeBuffer(), new GradeBuffer(), new GradeBuffer()};
+
+		jdbc.query(GRADES_SQL, rs -> {
+			int studentId = rs.getInt(1);
+			//students without grades, up to the one of this row
+			while (gradebook.size() < students.size() && students.get(gradebook.size()).id < studentId) {
+				gradebook.add(students.get(gradebook.size()).toStudent(buffers));
+			}
+			if (gradebook.size() < students.size() && students.get(gradebook.size()).id == studentId) {
+				buffers[subjectIndex(rs.getString(2))].add(rs.getInt(3), rs.getDouble(4));
+			}
+		});
+
+		while (gradebook.size() < students.size()) {
+			gradebook.add(students.get(gradebook.size()).toStudent(buffers));
+		}
+
+		return gradebook;
+	}
+
+	private static int subjectIndex(String subject) {
+		switch (subject) {
+			case MathGrade.SUBJECT:
+				return 0;
+			case ScienceGrade.SUBJECT:
+				return 1;
+			case HistoryGrade.SUBJECT:
+				return 2;
+			default:
+				throw new IllegalStateException("Unknown subject " + subject);
+		}
+	}
+
+	private static final class StudentColumns {
+
+		private final int id;
+
+		private final String firstname;
+
+		private final String lastname;
+
+		private final String emailAddress;
+
+		StudentColumns(int id, String firstname, String lastname, String emailAddress) {
+			this.id = id;
+			this.firstname = firstname;
+			this.lastname = lastname;
+			this.emailAddress = emailAddress;
+		}
+
+		/**
+		 * Takes the buffered grades, which belong to this student, and clears the buffers.
+		 */
+		CompactGradebookStudent toStudent(GradeBuffer[] buffers) {
+			return new CompactGradebookStudent(id, firstname, lastname, emailAddress,
+					buffers[0].drain(), buffers[1].drain(), buffers[2].drain());
+		}
+	}
+
+	private static final class GradeBuffer {
+
+		private int[] ids = new int[16];
+
+		private double[] grades = new double[16];
+
+		private int size;
+
+		void add(int id, double grade) {
+			if (size == ids.length) {
+				ids = Arrays.copyOf(ids, size * 2);
+				grades = Arrays.copyOf(grades, size * 2);
+			}
+			ids[size] = id;
+			grades[size] = grade;
+			size++;
+		}
+
+		CompactSubjectGrades drain() {
+			if (size == 0) {
+				return CompactSubjectGrades.EMPTY;
+			}
+			CompactSubjectGrades subjectGrades = new CompactSubjectGrades(Arrays.copyOf(ids, size), Arrays.copyOf(grades, size));
+			size = 0;
+			return subjectGrades;
+		}
+	}
+}
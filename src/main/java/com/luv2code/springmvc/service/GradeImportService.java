@@ -0,0 +1,207 @@
+package com.luv2code.springmvc.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.luv2code.springmvc.models.BulkGradeResult;
+import com.luv2code.springmvc.models.BulkGradeRow;
+import com.luv2code.springmvc.models.HistoryGrade;
+import com.luv2code.springmvc.models.MathGrade;
+import com.luv2code.springmvc.models.ScienceGrade;
+import com.luv2code.springmvc.repository.StudentDao;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.*;
+
+/**
+ * Streams grade rows from a JSON array or CSV body, validates them in chunks and
+ * writes every chunk with one JDBC batch. Invalid rows are reported
+ * back by position and never abort the import.
+ */
+@Service
+public class GradeImportService {
+
+	private static final Set<String> GRADE_TYPES = Set.of(MathGrade.SUBJECT, ScienceGrade.SUBJECT, HistoryGrade.SUBJECT);
+
+	private static final String CSV_HEADER = "studentId,gradeType,grade";
+
+	@Autowired
+	private StudentDao studentDao;
+
+	@Autowired
+	private JdbcTemplate jdbc;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private ObjectMapper mapper;
+
+	@Autowired
+	private GradeSummaryStore gradeSummaryStore;
+
+	@Autowired
+	private GradeLeaderboard leaderboard;
+
+	@Autowired
+	private StudentAndGradeService studentService;
+
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+
+	@Value("${gradebook.bulk.chunk-size:1000}")
+	private int chunkSize;
+
+	public BulkGradeResult importJson(InputStream body) throws IOException {
+
+		BulkGradeResult result = new BulkGradeResult();
+		List<PendingRow> chunk = new ArrayList<>(chunkSize);
+
+		try (JsonParser parser = mapper.getFactory().createParser(body)) {
+			if (parser.nextToken() != JsonToken.START_ARRAY) {
+				throw new IllegalArgumentException("Expected a JSON array of grade rows");
+			}
+			long rowNumber = 0;
+			JsonToken token;
+			while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+				if (token == null) {
+					throw new IllegalArgumentException("Unexpected end of grade rows");
+				}
+				rowNumber++;
+				JsonNode node = parser.readValueAsTree();
+				try {
+					chunk.add(new PendingRow(rowNumber, mapper.treeToValue(node, BulkGradeRow.class)));
+				} catch (JsonProcessingException e) {
+					result.reject(rowNumber, "Malformed row");
+				}
+				if (chunk.size() == chunkSize) {
+					writeChunk(chunk, result);
+				}
+			}
+		}
+
+		writeChunk(chunk, result);
+		return result;
+	}
+
+	public BulkGradeResult importCsv(Reader body) throws IOException {
+
+		BulkGradeResult result = new BulkGradeResult();
+		List<PendingRow> chunk = new ArrayList<>(chunkSize);
+
+		try (BufferedReader reader = new BufferedReader(body)) {
+			long rowNumber = 0;
+			String line;
+			while ((line = reader.readLine()) != null) {
+				rowNumber++;
+				if (line.isBlank() || (rowNumber == 1 && line.replace(" ", "").equalsIgnoreCase(CSV_HEADER))) {
+					continue;
+				}
+				String[] columns = line.split(",");
+				try {
+					if (columns.length != 3) {
+						throw new IllegalArgumentException();
+					}
+					chunk.add(new PendingRow(rowNumber, new BulkGradeRow(Integer.parseInt(columns[0].trim()),
+							columns[1].trim(), Double.parseDouble(columns[2].trim()))));
+				} catch (IllegalArgumentException e) {
+					result.reject(rowNumber, "Malformed row");
+				}
+				if (chunk.size() == chunkSize) {
+					writeChunk(chunk, result);
+				}
+			}
+		}
+
+		writeChunk(chunk, result);
+		return result;
+	}
+
+	private void writeChunk(List<PendingRow> chunk, BulkGradeResult result) {
+
+		if (chunk.isEmpty()) {
+			return;
+		}
+
+		Set<Integer> studentIds = new HashSet<>();
+		for (PendingRow pending : chunk) {
+			studentIds.add(pending.row.getStudentId());
+		}
+		Set<Integer> existingStudentIds = new HashSet<>();
+		studentDao.findAllById(studentIds).forEach(student -> existingStudentIds.add(student.getId()));
+
+		List<Object[]> batch = new ArrayList<>(chunk.size());
+		List<PendingRow> valid = new ArrayList<>(chunk.size());
+
+		for (PendingRow pending : chunk) {
+			String reason = validate(pending.row, existingStudentIds);
+			if (reason != null) {
+				result.reject(pending.rowNumber, reason);
+				continue;
+			}
+			batch.add(new Object[]{pending.row.getStudentId(), pending.row.getGradeType(), pending.row.getGrade()});
+			valid.add(pending);
+		}
+
+		//a student deleted since the check above drops its grades
+		boolean[] inserted = transactionTemplate.execute(status -> GuardedGradeInserts.insert(jdbc, batch));
+
+		List<BulkGradeRow> accepted = new ArrayList<>(valid.size());
+		for (int i = 0; i < valid.size(); i++) {
+			if (inserted[i]) {
+				accepted.add(valid.get(i).row);
+			} else {
+				result.reject(valid.get(i).rowNumber, "Student was not found");
+			}
+		}
+
+		for (BulkGradeRow row : accepted) {
+			gradeSummaryStore.gradeAdded(row.getStudentId(), row.getGradeType(), row.getGrade());
+			leaderboard.gradeAdded(row.getStudentId(), row.getGradeType(), row.getGrade());
+			studentService.evictStudentInformation(row.getStudentId());
+		}
+		if (!accepted.isEmpty()) {
+			eventPublisher.publishEvent(GradebookChangedEvent.INSTANCE);
+		}
+
+		result.addAccepted(accepted.size());
+		chunk.clear();
+	}
+
+	private static String validate(BulkGradeRow row, Set<Integer> existingStudentIds) {
+		if (row.getGradeType() == null || !GRADE_TYPES.contains(row.getGradeType())) {
+			return "Unknown grade type";
+		}
+		//written so that NaN is rejected too
+		if (!(row.getGrade() >= 0 && row.getGrade() <= 100)) {
+			return "Grade must be between 0 and 100";
+		}
+		if (!existingStudentIds.contains(row.getStudentId())) {
+			return "Student was not found";
+		}
+		return null;
+	}
+
+	private static class PendingRow {
+
+		private final long rowNumber;
+
+		private final BulkGradeRow row;
+
+		private PendingRow(long rowNumber, BulkGradeRow row) {
+			this.rowNumber = rowNumber;
+			this.row = row;
+		}
+	}
+}
@@ -0,0 +1,209 @@
+package com.luv2code.springmvc.service;
+
+import com.luv2code.springmvc.models.HistoryGrade;
+import com.luv2code.springmvc.models.MathGrade;
+import com.luv2code.springmvc.models.ScienceGrade;
+import com.luv2code.springmvc.models.SubjectRank;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Per-subject ranking of students by average grade, kept in memory and updated by every
+ * grade write after it commits, like {@link GradeSummaryStore}.
+ *
+ * <p>Averages are ranked at the precision they are shown, two decimals, so every subject
+ * keeps a Fenwick tree of student counts over the 10001 possible averages: rank and
+ * percentile are prefix sums, O(log n). A sorted set of the students serves top-N in
+ * O(log n + N).
+ *
+ * <p>The index is built from the database once every singleton is created, before the web
+ * server starts accepting requests, so no write can commit while it is being built.
+ */
+@Component
+public class GradeLeaderboard implements SmartInitializingSingleton {
+
+	private static final String[] SUBJECTS = {MathGrade.SUBJECT, ScienceGrade.SUBJECT, HistoryGrade.SUBJECT};
+
+	private static final String SUBJECT_TOTALS_SQL = "select g.student_id, g.subject, count(*), sum(g.grade) "
+			+ "from grade g join student s on s.id = g.student_id group by g.student_id, g.subject";
+
+	/** Averages from 0.00 to 100.00 in hundredths. */
+	private static final int BUCKETS = 10001;
+
+	@Autowired
+	private JdbcTemplate jdbc;
+
+	private volatile SubjectRanking[] rankings = newRankings();
+
+	@Override
+	public void afterSingletonsInstantiated() {
+		rebuild();
+	}
+
+	/**
+	 * Replaces the index with one built from the database. Writes that commit while it runs may
+	 * be missed, so outside startup only call it when grades are not being written.
+	 */
+	public void rebuild() {
+		SubjectRanking[] rebuilt = newRankings();
+		jdbc.query(SUBJECT_TOTALS_SQL, rs -> {
+			rebuilt[subjectIndex(rs.getString(2))].add(rs.getInt(1), rs.getInt(3), rs.getDouble(4));
+		});
+		rankings = rebuilt;
+	}
+
+	public void gradeAdded(int studentId, String gradeType, double grade) {
+		rankings[subjectIndex(gradeType)].add(studentId, 1, grade);
+	}
+
+	public void gradeRemoved(int studentId, String gradeType, double grade) {
+		rankings[subjectIndex(gradeType)].add(studentId, -1, -grade);
+	}
+
+	public void studentRemoved(int studentId) {
+		for (SubjectRanking ranking : rankings) {
+			ranking.remove(studentId);
+		}
+	}
+
+	/**
+	 * The best {@code limit} students of the subject, highest average first, ties by student id.
+	 */
+	public List<SubjectRank> top(String gradeType, int limit) {
+		return rankings[subjectIndex(gradeType)].top(limit);
+	}
+
+	/**
+	 * The student's standing in the subject, or null when the student has no grade in it.
+	 */
+	public SubjectRank rank(int studentId, String gradeType) {
+		return rankings[subjectIndex(gradeType)].rank(studentId);
+	}
+
+	private static SubjectRanking[] newRankings() {
+		SubjectRanking[] rankings = new SubjectRanking[SUBJECTS.length];
+		for (int i = 0; i < SUBJECTS.length; i++) {
+			rankings[i] = new SubjectRanking(SUBJECTS[i]);
+		}
+		return rankings;
+	}
+
+	private static int subjectIndex(String gradeType) {
+		for (int i = 0; i < SUBJECTS.length; i++) {
+			if (SUBJECTS[i].equals(gradeType)) {
+				return i;
+			}
+		}
+		throw new IllegalArgumentException("Unknown grade type " + gradeType);
+	}
+
+	private static final class SubjectRanking {
+
+		private final String subject;
+
+		private final Map<Integer, Standing> standings = new HashMap<>();
+
+		/** Highest average first, then by student id. */
+		private final TreeSet<Standing> ordered = new TreeSet<>(Comparator
+				.comparingInt((Standing standing) -> -standing.bucket)
+				.thenComparingInt(standing -> standing.studentId));
+
+		/** Fenwick tree, counts[i] covers a range of buckets ending at bucket i - 1. */
+		private final int[] counts = new int[BUCKETS + 1];
+
+		SubjectRanking(String subject) {
+			this.subject = subject;
+		}
+
+		synchronized void add(int studentId, int count, double sum) {
+			Standing previous = standings.remove(studentId);
+			if (previous != null) {
+				ordered.remove(previous);
+				addCount(previous.bucket, -1);
+				count += previous.count;
+				sum += previous.sum;
+			}
+			if (count > 0) {
+				Standing standing = new Standing(studentId, count, sum);
+				standings.put(studentId, standing);
+				ordered.add(standing);
+				addCount(standing.bucket, 1);
+			}
+		}
+
+		synchronized void remove(int studentId) {
+			Standing previous = standings.remove(studentId);
+			if (previous != null) {
+				ordered.remove(previous);
+				addCount(previous.bucket, -1);
+			}
+		}
+
+		synchronized List<SubjectRank> top(int limit) {
+			List<SubjectRank> top = new ArrayList<>(Math.min(limit, standings.size()));
+			for (Standing standing : ordered) {
+				if (top.size() == limit) {
+					break;
+				}
+				top.add(toRank(standing));
+			}
+			return top;
+		}
+
+		synchronized SubjectRank rank(int studentId) {
+			Standing standing = standings.get(studentId);
+			return standing == null ? null : toRank(standing);
+		}
+
+		private SubjectRank toRank(Standing standing) {
+			int students = standings.size();
+			int below = countUpTo(standing.bucket - 1);
+			int tied = countUpTo(standing.bucket) - below;
+			double percentile = Math.round((below + tied / 2.0) * 10000 / students) / 100.0;
+			return new SubjectRank(standing.studentId, subject, standing.bucket / 100.0,
+					students - below - tied + 1, percentile, students);
+		}
+
+		private void addCount(int bucket, int delta) {
+			for (int i = bucket + 1; i <= BUCKETS; i += i & -i) {
+				counts[i] += delta;
+			}
+		}
+
+		/** Students with an average at or below the bucket. */
+		private int countUpTo(int bucket) {
+			int total = 0;
+			for (int i = bucket + 1; i > 0; i -= i & -i) {
+				total += counts[i];
+			}
+			return total;
+		}
+	}
+
+	private static final class Standing {
+
+		private final int studentId;
+
+		private final int count;
+
+		private final double sum;
+
+		private final int bucket;
+
+		Standing(int studentId, int count, double sum) {
+			this.studentId = studentId;
+			this.count = count;
+			this.sum = sum;
+			this.bucket = (int) Math.max(0, Math.min(BUCKETS - 1, Math.round(sum / count * 100)));
+		}
+	}
+}
@@ -0,0 +1,138 @@
+package com.luv2code.springmvc.service;
+
+import com.luv2code.springmvc.models.HistoryGrade;
+import com.luv2code.springmvc.models.MathGrade;
+import com.luv2code.springmvc.models.ScienceGrade;
+import com.luv2code.springmvc.models.SubjectStatistics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * School-wide grade statistics per subject, aggregated by the database.
+ *
+ * <p>Count, mean, standard deviation, min and max come from one GROUP BY query, and the
+ * histogram from another. Percentiles need the grades in order, so they are picked from a
+ * single pass over the grades sorted by the database, read in {@code fetch-size} batches and
+ * keeping only the previous grade, so the heap used does not grow with the table.
+ *
+ * <p>The queries run in one read-only transaction. Where it is not a consistent snapshot, a
+ * grade written in between may shift the percentiles by one position.
+ */
+@Service
+@Transactional(readOnly = true)
+public class GradeStatisticsService {
+
+	private static final String[] SUBJECTS = {MathGrade.SUBJECT, ScienceGrade.SUBJECT, HistoryGrade.SUBJECT};
+
+	private static final String AGGREGATES_SQL = "select subject, count(*), avg(grade), stddev_pop(grade), min(grade), max(grade) "
+			+ "from grade group by subject";
+
+	private static final String HISTOGRAM_SQL = "select subject, least(floor(grade / 10), 9) as bucket, count(*) "
+			+ "from grade group by subject, least(floor(grade / 10), 9)";
+
+	private static final String ORDERED_GRADES_SQL = "select subject, grade from grade order by subject, grade";
+
+	private static final double[] PERCENTILES = {0.25, 0.5, 0.75, 0.9};
+
+	private final JdbcTemplate jdbc;
+
+	public GradeStatisticsService(DataSource dataSource,
+								  @Value("${gradebook.statistics.fetch-size:1000}") int fetchSize) {
+		this.jdbc = new JdbcTemplate(dataSource);
+		this.jdbc.setFetchSize(fetchSize);
+	}
+
+	/**
+	 * Statistics of every subject, in math, science, history order.
+	 */
+	public Map<String, SubjectStatistics> getStatistics() {
+
+		Map<String, SubjectStatistics> statistics = new LinkedHashMap<>();
+		for (String subject : SUBJECTS) {
+			statistics.put(subject, new SubjectStatistics(subject, 0, null, null, null, null));
+		}
+
+		jdbc.query(AGGREGATES_SQL, rs -> {
+			String subject = rs.getString(1);
+			statistics.put(subject, new SubjectStatistics(subject, rs.getLong(2), round(rs.getDouble(3)),
+					round(rs.getDouble(4)), rs.getDouble(5), rs.getDouble(6)));
+		});
+
+		jdbc.query(HISTOGRAM_SQL, rs -> {
+			SubjectStatistics subject = statistics.get(rs.getString(1));
+			int bucket = Math.max(0, rs.getInt(2));
+			subject.getHistogram()[bucket] += rs.getLong(3);
+		});
+
+		PercentilePass pass = new PercentilePass(statistics);
+		jdbc.query(ORDERED_GRADES_SQL, rs -> {
+			pass.accept(rs.getString(1), rs.getDouble(2));
+		});
+		pass.finish();
+
+		return statistics;
+	}
+
+	private static Double round(double value) {
+		return Math.round(value * 100) / 100.0;
+	}
+
+	/**
+	 * Picks the percentiles of each subject out of its grades in ascending order, using the
+	 * counts of the aggregate query to know which positions to keep.
+	 */
+	private static final class PercentilePass {
+
+		private final Map<String, SubjectStatistics> statistics;
+
+		private final Double[] values = new Double[PERCENTILES.length];
+
+		private SubjectStatistics current;
+
+		private long index;
+
+		private double previous;
+
+		PercentilePass(Map<String, SubjectStatistics> statistics) {
+			this.statistics = statistics;
+		}
+
+		void accept(String subject, double grade) {
+			if (current == null || !current.getSubject().equals(subject)) {
+				finish();
+				current = statistics.get(subject);
+				index = 0;
+			}
+			long last = current.getCount() - 1;
+			for (int i = 0; i < PERCENTILES.length; i++) {
+				double position = last * PERCENTILES[i];
+				long lower = (long) position;
+				double fraction = position - lower;
+				if (index == lower && fraction == 0) {
+					values[i] = grade;
+				} else if (index == lower + 1 && fraction > 0) {
+					values[i] = round(previous + fraction * (grade - previous));
+				}
+			}
+			previous = grade;
+			index++;
+		}
+
+		void finish() {
+			if (current != null) {
+				current.setP25(values[0]);
+				current.setMedian(values[1]);
+				current.setP75(values[2]);
+				current.setP90(values[3]);
+			}
+			Arrays.fill(values, null);
+		}
+	}
+}
@@ -0,0 +1,132 @@
+package com.luv2code.springmvc.service;
+
+import com.luv2code.springmvc.models.StudentGrades;
+import com.luv2code.springmvc.models.SubjectGradeSummary;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+
+/**
+ * Per-student, per-subject grade summaries kept in memory and updated by every
+ * grade write, so averages are read without touching the grade lists.
+ *
+ * <p>Entries are filled lazily by readers. Every write gives the student a new
+ * generation, and a reader only publishes summaries computed under the generation
+ * it observed before querying, so a slow reader cannot overwrite a newer write.
+ *
+ * <p>Entries are bounded by {@code gradebook.summary-store.maximum-size} and expire after
+ * {@code gradebook.summary-store.expire-after-write}, so grades written outside this
+ * application are picked up again from the rows. Deleted students' entries are removed.
+ * A missing entry has the generation of the last removal or eviction, so a reader that
+ * started before one cannot publish afterwards either.
+ */
+@Component
+public class GradeSummaryStore {
+
+	private final AtomicLong generations = new AtomicLong();
+
+	private final AtomicLong removals = new AtomicLong();
+
+	private final ConcurrentMap<Integer, Entry> entries;
+
+	public GradeSummaryStore(@Value("${gradebook.summary-store.maximum-size:100000}") long maximumSize,
+							 @Value("${gradebook.summary-store.expire-after-write:10m}") Duration expireAfterWrite) {
+		this.entries = Caffeine.newBuilder()
+				.maximumSize(maximumSize)
+				.expireAfterWrite(expireAfterWrite)
+				//runs within the eviction, before another compute on the key can see it missing
+				.<Integer, Entry>evictionListener((studentId, entry, cause) -> removals.incrementAndGet())
+				.build()
+				.asMap();
+	}
+
+	public long generation(int studentId) {
+		Entry entry = entries.get(studentId);
+		return entry == null ? -removals.get() : entry.generation;
+	}
+
+	/**
+	 * Returns the student's summaries as {math, science, history}, or null when they are not known yet.
+	 */
+	public SubjectGradeSummary[] get(int studentId) {
+		Entry entry = entries.get(studentId);
+		return entry == null || entry.summaries == null ? null : entry.summaries.clone();
+	}
+
+	public void putIfCurrent(int studentId, long generation, StudentGrades studentGrades) {
+		SubjectGradeSummary[] summaries = {studentGrades.getMathGradeSummary(),
+				studentGrades.getScienceGradeSummary(), studentGrades.getHistoryGradeSummary()};
+		entries.compute(studentId, (id, entry) -> {
+			long current = entry == null ? -removals.get() : entry.generation;
+			return current == generation ? new Entry(generations.incrementAndGet(), summaries) : entry;
+		});
+	}
+
+	public void gradeAdded(int studentId, String gradeType, double grade) {
+		update(studentId, gradeType, summary -> summary.add(grade));
+	}
+
+	public void gradeRemoved(int studentId, String gradeType, double grade) {
+		update(studentId, gradeType, summary -> summary.remove(grade));
+	}
+
+	public void studentRemoved(int studentId) {
+		entries.compute(studentId, (id, entry) -> {
+			removals.incrementAndGet();
+			return null;
+		});
+	}
+
+	public void clear() {
+		entries.clear();
+		removals.incrementAndGet();
+	}
+
+	private void update(int studentId, String gradeType, UnaryOperator<SubjectGradeSummary> change) {
+		int subject = subjectIndex(gradeType);
+		entries.compute(studentId, (id, entry) -> {
+			if (entry == null) {
+				return new Entry(generations.incrementAndGet(), null);
+			}
+			SubjectGradeSummary[] summaries = null;
+			if (entry.summaries != null) {
+				SubjectGradeSummary changed = change.apply(entry.summaries[subject]);
+				if (changed != null) {
+					summaries = entry.summaries.clone();
+					summaries[subject] = changed;
+				}
+			}
+			return new Entry(generations.incrementAndGet(), summaries);
+		});
+	}
+
+	private static int subjectIndex(String gradeType) {
+		switch (gradeType) {
+			case "math":
+				return 0;
+			case "science":
+				return 1;
+			case "history":
+				return 2;
+			default:
+				throw new IllegalArgumentException("Unknown grade type " + gradeType);
+		}
+	}
+
+	private static class Entry {
+
+		private final long generation;
+
+		private final SubjectGradeSummary[] summaries;
+
+		private Entry(long generation, SubjectGradeSummary[] summaries) {
+			this.generation = generation;
+			this.summaries = summaries;
+		}
+	}
+}
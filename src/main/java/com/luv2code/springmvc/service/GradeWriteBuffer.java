@@ -0,0 +1,258 @@
+package com.luv2code.springmvc.service;
+
+import com.luv2code.springmvc.models.HistoryGrade;
+import com.luv2code.springmvc.models.MathGrade;
+import com.luv2code.springmvc.models.ScienceGrade;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Write-behind buffer for single grade writes, used when {@code gradebook.write-behind.enabled}.
+ *
+ * <p>Grades are validated and queued, and the request is acknowledged before they are written.
+ * A single writer thread commits them in groups, one JDBC batch and transaction per
+ * {@code batch-size} grades or per {@code max-delay-ms}, whichever comes first, then updates the
+ * summary store and the cache like a regular write. A full queue rejects new grades instead of
+ * blocking request threads.
+ *
+ * <p>Read-your-writes: {@link #awaitPending(int)} waits until the student's queued grades are
+ * committed, and must be called before reading the student. Acknowledged grades that are still
+ * queued are lost if the process dies; on shutdown the queue is drained.
+ *
+ * <p>Deleting a student: call {@link #awaitPending(int)} first, so the grades already queued
+ * are written and deleted with the student. A grade whose student is gone by the time it is
+ * written is dropped by the insert itself, and neither summarized nor ranked.
+ */
+@Component
+public class GradeWriteBuffer {
+
+	private static final Logger log = LoggerFactory.getLogger(GradeWriteBuffer.class);
+
+	private static final Set<String> GRADE_TYPES = Set.of(MathGrade.SUBJECT, ScienceGrade.SUBJECT, HistoryGrade.SUBJECT);
+
+	@Autowired
+	private JdbcTemplate jdbc;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private GradeSummaryStore gradeSummaryStore;
+
+	@Autowired
+	private GradeLeaderboard leaderboard;
+
+	@Autowired
+	private StudentAndGradeService studentService;
+
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+
+	private final boolean enabled;
+
+	private final int batchSize;
+
+	private final long maxDelayNanos;
+
+	private final BlockingQueue<PendingGrade> queue;
+
+	/** The future of the last queued grade of every student with grades in flight. */
+	private final ConcurrentHashMap<Integer, CompletableFuture<Void>> lastPendingByStudent = new ConcurrentHashMap<>();
+
+	private volatile boolean accepting = true;
+
+	/** Held shared by every submit, so stop() knows no grade is still being queued once it holds it. */
+	private final ReadWriteLock submitLock = new ReentrantReadWriteLock();
+
+	private Thread writer;
+
+	public GradeWriteBuffer(@Value("${gradebook.write-behind.enabled:false}") boolean enabled,
+							@Value("${gradebook.write-behind.capacity:10000}") int capacity,
+							@Value("${gradebook.write-behind.batch-size:500}") int batchSize,
+							@Value("${gradebook.write-behind.max-delay-ms:20}") long maxDelayMillis) {
+		this.enabled = enabled;
+		this.batchSize = batchSize;
+		this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+		this.queue = new ArrayBlockingQueue<>(enabled ? capacity : 1);
+	}
+
+	@PostConstruct
+	public void start() {
+		if (enabled) {
+			writer = new Thread(this::writeLoop, "grade-write-behind");
+			writer.setDaemon(true);
+			writer.start();
+		}
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public static boolean isValid(double grade, String gradeType) {
+		return grade >= 0 && grade <= 100 && gradeType != null && GRADE_TYPES.contains(gradeType);
+	}
+
+	/**
+	 * Queues a validated grade of an existing student. Returns false when the queue is full
+	 * or the buffer is shutting down.
+	 */
+	public boolean submit(int studentId, String gradeType, double grade) {
+		submitLock.readLock().lock();
+		try {
+			if (!accepting) {
+				return false;
+			}
+			CompletableFuture<Void> written = new CompletableFuture<>();
+			//registered before queueing, so the writer cannot complete it before a reader can see it
+			CompletableFuture<Void> previous = lastPendingByStudent.put(studentId, written);
+			if (!queue.offer(new PendingGrade(studentId, gradeType, grade, written))) {
+				if (previous != null) {
+					lastPendingByStudent.replace(studentId, written, previous);
+				} else {
+					lastPendingByStudent.remove(studentId, written);
+				}
+				return false;
+			}
+			return true;
+		} finally {
+			submitLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Blocks until every grade queued so far for the student is committed, or failed.
+	 */
+	public void awaitPending(int studentId) {
+		CompletableFuture<Void> last = lastPendingByStudent.get(studentId);
+		if (last == null) {
+			return;
+		}
+		try {
+			last.get(10, TimeUnit.SECONDS);
+		} catch (ExecutionException e) {
+			//already logged by the writer, the student is read without the lost grades
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (TimeoutException e) {
+			log.warn("Pending grades of student {} not written after 10s", studentId);
+		}
+		lastPendingByStudent.remove(studentId, last);
+	}
+
+	private void writeLoop() {
+		List<PendingGrade> batch = new ArrayList<>(batchSize);
+		while (accepting || !queue.isEmpty()) {
+			try {
+				PendingGrade first = queue.poll(100, TimeUnit.MILLISECONDS);
+				if (first == null) {
+					continue;
+				}
+				batch.add(first);
+				long deadline = System.nanoTime() + maxDelayNanos;
+				while (batch.size() < batchSize) {
+					long remaining = deadline - System.nanoTime();
+					PendingGrade next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+					if (next == null) {
+						break;
+					}
+					batch.add(next);
+					queue.drainTo(batch, batchSize - batch.size());
+				}
+			} catch (InterruptedException e) {
+				//keep draining, stop() decides when the loop ends
+			}
+			if (!batch.isEmpty()) {
+				write(batch);
+				batch.clear();
+			}
+		}
+	}
+
+	private void write(List<PendingGrade> batch) {
+		List<Object[]> rows = new ArrayList<>(batch.size());
+		for (PendingGrade pending : batch) {
+			rows.add(new Object[]{pending.studentId, pending.gradeType, pending.grade});
+		}
+		boolean[] inserted;
+		try {
+			inserted = transactionTemplate.execute(status -> GuardedGradeInserts.insert(jdbc, rows));
+		} catch (RuntimeException e) {
+			log.error("Lost {} acknowledged grades, group commit failed", batch.size(), e);
+			batch.forEach(pending -> pending.written.completeExceptionally(e));
+			return;
+		}
+		for (int i = 0; i < batch.size(); i++) {
+			PendingGrade pending = batch.get(i);
+			if (inserted[i]) {
+				gradeSummaryStore.gradeAdded(pending.studentId, pending.gradeType, pending.grade);
+				leaderboard.gradeAdded(pending.studentId, pending.gradeType, pending.grade);
+				studentService.evictStudentInformation(pending.studentId);
+			} else {
+				log.debug("Grade of deleted student {} dropped", pending.studentId);
+			}
+			pending.written.complete(null);
+			lastPendingByStudent.remove(pending.studentId, pending.written);
+		}
+		eventPublisher.publishEvent(GradebookChangedEvent.INSTANCE);
+	}
+
+	/**
+	 * Stops accepting grades and waits for the writer to commit everything queued, including
+	 * grades whose submit was still in progress when stopping began.
+	 */
+	@PreDestroy
+	public void stop() throws InterruptedException {
+		submitLock.writeLock().lock();
+		try {
+			accepting = false;
+		} finally {
+			submitLock.writeLock().unlock();
+		}
+		if (writer != null) {
+			writer.join(TimeUnit.SECONDS.toMillis(30));
+			if (writer.isAlive()) {
+				log.error("Write-behind queue not drained on shutdown, {} grades lost", queue.size());
+			}
+		}
+	}
+
+	private static final class PendingGrade {
+
+		private final int studentId;
+
+		private final String gradeType;
+
+		private final double grade;
+
+		private final CompletableFuture<Void> written;
+
+		PendingGrade(int studentId, String gradeType, double grade, CompletableFuture<Void> written) {
+			this.studentId = studentId;
+			this.gradeType = gradeType;
+			this.grade = grade;
+			this.written = written;
+		}
+	}
+}
@@ -0,0 +1,118 @@
+package com.luv2code.springmvc.service;
+
+import com.luv2code.springmvc.models.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds a {@link Gradebook} from a student list and a grade stream.
+ * The grades are grouped by student id and subject in a single pass, so assembly
+ * is linear in students + grades instead of students x grades.
+ */
+public final class GradebookAssembler {
+
+	private GradebookAssembler() {}
+
+	public static Gradebook assemble(Iterable<CollegeStudent> collegeStudents, Iterable<? extends SubjectGrade> grades) {
+
+		Map<Integer, GradeLists> gradesByStudent = groupByStudentId(grades);
+
+		Gradebook gradebook = new Gradebook();
+
+		for (CollegeStudent collegeStudent : collegeStudents) {
+			GradeLists studentGrades = gradesByStudent.get(collegeStudent.getId());
+
+			gradebook.getStudents().add(new GradebookCollegeStudent(collegeStudent.getId(), collegeStudent.getFirstname(),
+					collegeStudent.getLastname(), collegeStudent.getEmailAddress(),
+					studentGrades != null ? studentGrades.toStudentGrades() : new StudentGrades()));
+		}
+
+		return gradebook;
+	}
+
+	public static GradebookCollegeStudent assembleStudent(List<StudentGradeRow> rows) {
+		return assembleStudent(rows, null);
+	}
+
+	/**
+	 * Maps the rows of {@code StudentDao.findStudentWithGrades} to a single student,
+	 * or returns null when there are no rows, i.e. the student does not exist.
+	 * Known summaries ({math, science, history}) are used as-is instead of being
+	 * recomputed from the rows, unless their counts disagree with the rows, as they do
+	 * when a write committed after the rows were read but before its summary update.
+	 */
+	public static GradebookCollegeStudent assembleStudent(List<StudentGradeRow> rows, SubjectGradeSummary[] summaries) {
+
+		if (rows.isEmpty()) {
+			return null;
+		}
+
+		GradeLists grades = new GradeLists();
+
+		for (StudentGradeRow row : rows) {
+			if (row.getGradeId() == null) {
+				continue;
+			}
+			SubjectGrade grade = SubjectGrade.create(row.getSubject(), row.getGrade());
+			if (grade == null) {
+				throw new IllegalStateException("Unknown subject " + row.getSubject());
+			}
+			grade.setId(row.getGradeId());
+			grade.setStudentId(row.getStudentId());
+			grades.add(grade);
+		}
+
+		StudentGrades studentGrades = summaries == null || !grades.matches(summaries)
+				? grades.toStudentGrades()
+				: new StudentGrades(grades.math, grades.science, grades.history, summaries[0], summaries[1], summaries[2]);
+
+		StudentGradeRow student = rows.get(0);
+		return new GradebookCollegeStudent(student.getStudentId(), student.getFirstname(), student.getLastname(),
+				student.getEmailAddress(), studentGrades);
+	}
+
+	static Map<Integer, GradeLists> groupByStudentId(Iterable<? extends SubjectGrade> grades) {
+		Map<Integer, GradeLists> gradesByStudent = new HashMap<>();
+		for (SubjectGrade grade : grades) {
+			gradesByStudent.computeIfAbsent(grade.getStudentId(), studentId -> new GradeLists()).add(grade);
+		}
+		return gradesByStudent;
+	}
+
+	static class GradeLists {
+
+		private final List<Grade> math = new ArrayList<>();
+
+		private final List<Grade> science = new ArrayList<>();
+
+		private final List<Grade> history = new ArrayList<>();
+
+		void add(SubjectGrade grade) {
+			switch (grade.getSubject()) {
+				case MathGrade.SUBJECT:
+					math.add(grade);
+					break;
+				case ScienceGrade.SUBJECT:
+					science.add(grade);
+					break;
+				case HistoryGrade.SUBJECT:
+					history.add(grade);
+					break;
+				default:
+					throw new IllegalStateException("Unknown subject " + grade.getSubject());
+			}
+		}
+
+		boolean matches(SubjectGradeSummary[] summaries) {
+			return summaries[0].getCount() == math.size() && summaries[1].getCount() == science.size()
+					&& summaries[2].getCount() == history.size();
+		}
+
+		StudentGrades toStudentGrades() {
+			return new StudentGrades(math, science, history);
+		}
+	}
+}
@@ -0,0 +1,11 @@
+package com.luv2code.springmvc.service;
+
+/**
+ * Published after a committed change to the roster or to any grade.
+ */
+public final class GradebookChangedEvent {
+
+	public static final GradebookChangedEvent INSTANCE = new GradebookChangedEvent();
+
+	private GradebookChangedEvent() {}
+}
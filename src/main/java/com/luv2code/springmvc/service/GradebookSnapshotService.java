@@ -0,0 +1,142 @@
+package com.luv2code.springmvc.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps the full roster as pre-serialized JSON for GET /, when {@code gradebook.snapshot.enabled}.
+ *
+ * <p>A single background thread rebuilds the snapshot every {@code gradebook.snapshot.refresh-interval-ms}
+ * and soon after every {@link GradebookChangedEvent}; notifications that arrive during a rebuild
+ * are folded into one more rebuild. Each snapshot is immutable and replaces the previous one
+ * with a single volatile write, so readers never see a partial roster. A failed rebuild keeps
+ * serving the previous snapshot.
+ *
+ * <p>Rebuilds are serialized, whichever thread runs them, so each one reads the roster after
+ * the previous one published and an older roster never replaces a newer one.
+ */
+@Service
+public class GradebookSnapshotService {
+
+	private static final Logger log = LoggerFactory.getLogger(GradebookSnapshotService.class);
+
+	@Autowired
+	private StudentAndGradeService studentService;
+
+	@Autowired
+	private ObjectMapper mapper;
+
+	private final boolean enabled;
+
+	private final long refreshIntervalMillis;
+
+	private final AtomicBoolean rebuildPending = new AtomicBoolean();
+
+	private ScheduledExecutorService executor;
+
+	private volatile Snapshot current;
+
+	public GradebookSnapshotService(@Value("${gradebook.snapshot.enabled:false}") boolean enabled,
+									@Value("${gradebook.snapshot.refresh-interval-ms:5000}") long refreshIntervalMillis) {
+		this.enabled = enabled;
+		this.refreshIntervalMillis = refreshIntervalMillis;
+	}
+
+	/**
+	 * Returns the latest snapshot, or null when snapshots are disabled or the first one is not built yet.
+	 */
+	public Snapshot current() {
+		return enabled ? current : null;
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void start() {
+		if (!enabled) {
+			return;
+		}
+		executor = Executors.newSingleThreadScheduledExecutor(task -> {
+			Thread thread = new Thread(task, "gradebook-snapshot");
+			thread.setDaemon(true);
+			return thread;
+		});
+		executor.scheduleWithFixedDelay(this::rebuildQuietly, 0, refreshIntervalMillis, TimeUnit.MILLISECONDS);
+	}
+
+	@EventListener
+	public void gradebookChanged(GradebookChangedEvent event) {
+		if (executor != null && rebuildPending.compareAndSet(false, true)) {
+			executor.execute(this::rebuildQuietly);
+		}
+	}
+
+	/**
+	 * Builds and publishes a new snapshot on the calling thread, after any rebuild in progress.
+	 */
+	public synchronized Snapshot rebuild() throws Exception {
+		rebuildPending.set(false);
+		//read before the roster, so the roster is never older than the version served with it
+		long rosterVersion = studentService.getRosterVersion();
+		byte[] json = mapper.writeValueAsBytes(studentService.getGradebook().getStudents());
+		Snapshot snapshot = new Snapshot(json, "\"" + DigestUtils.md5DigestAsHex(json) + "\"", rosterVersion);
+		current = snapshot;
+		return snapshot;
+	}
+
+	private void rebuildQuietly() {
+		try {
+			rebuild();
+		} catch (Exception e) {
+			log.warn("Gradebook snapshot rebuild failed, serving the previous snapshot", e);
+		}
+	}
+
+	@PreDestroy
+	public void stop() {
+		if (executor != null) {
+			executor.shutdownNow();
+		}
+	}
+
+	public static final class Snapshot {
+
+		private final byte[] json;
+
+		private final String eTag;
+
+		private final long rosterVersion;
+
+		Snapshot(byte[] json, String eTag, long rosterVersion) {
+			this.json = json;
+			this.eTag = eTag;
+			this.rosterVersion = rosterVersion;
+		}
+
+		/**
+		 * The serialized roster. Shared by all readers, must not be modified.
+		 */
+		public byte[] getJson() {
+			return json;
+		}
+
+		public String getETag() {
+			return eTag;
+		}
+
+		public long getRosterVersion() {
+			return rosterVersion;
+		}
+	}
+}
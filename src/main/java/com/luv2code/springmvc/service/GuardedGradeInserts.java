@@ -0,0 +1,58 @@
+package com.luv2code.springmvc.service;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Batched grade inserts that only insert a grade while its student exists, so a grade racing
+ * a delete of its student never outlives it. Only the grades actually inserted may update the
+ * summary store and the leaderboard.
+ */
+final class GuardedGradeInserts {
+
+	private static final String INSERT_GRADE = "insert into grade(student_id, subject, grade) "
+			+ "select id, ?, ? from student where id = ?";
+
+	private GuardedGradeInserts() {}
+
+	/**
+	 * Inserts the grades, each a {@code {studentId, subject, grade}} row, in one JDBC batch within
+	 * the caller's transaction, and tells which were inserted. A driver that reports
+	 * {@link Statement#SUCCESS_NO_INFO} instead of a count leaves it open, those grades count as
+	 * inserted when their student still exists.
+	 */
+	static boolean[] insert(JdbcTemplate jdbc, List<Object[]> grades) {
+
+		List<Object[]> rows = new ArrayList<>(grades.size());
+		for (Object[] grade : grades) {
+			rows.add(new Object[]{grade[1], grade[2], grade[0]});
+		}
+		int[] counts = jdbc.batchUpdate(INSERT_GRADE, rows);
+
+		Set<Object> uncounted = new HashSet<>();
+		for (int i = 0; i < counts.length; i++) {
+			if (counts[i] == Statement.SUCCESS_NO_INFO) {
+				uncounted.add(grades.get(i)[0]);
+			}
+		}
+		Set<Integer> existing = uncounted.isEmpty() ? Collections.emptySet() : existingStudentIds(jdbc, uncounted);
+
+		boolean[] inserted = new boolean[counts.length];
+		for (int i = 0; i < counts.length; i++) {
+			inserted[i] = counts[i] > 0 || (counts[i] == Statement.SUCCESS_NO_INFO && existing.contains(grades.get(i)[0]));
+		}
+		return inserted;
+	}
+
+	private static Set<Integer> existingStudentIds(JdbcTemplate jdbc, Set<Object> studentIds) {
+		String placeholders = String.join(",", Collections.nCopies(studentIds.size(), "?"));
+		return new HashSet<>(jdbc.queryForList("select id from student where id in (" + placeholders + ")",
+				Integer.class, studentIds.toArray()));
+	}
+}
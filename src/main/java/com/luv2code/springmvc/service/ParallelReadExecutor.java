@@ -0,0 +1,108 @@
+package com.luv2code.springmvc.service;
+
+import com.luv2code.springmvc.metrics.StatementCounter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs independent reads next to the caller's own query, so their round trips overlap.
+ * Each read runs in its own transaction on its own connection.
+ *
+ * <p>Disabled by default ({@code gradebook.parallel-reads.enabled}), in which case reads run
+ * on the calling thread. The pool is bounded, and a full queue also falls back to the caller.
+ *
+ * <p>The caller holds its own connection while it waits, so a caller never waits for a read
+ * that has not started: {@link #join} runs it on the calling thread instead. Only callers of a
+ * read already running on a worker wait, at most {@code gradebook.parallel-reads.threads} of
+ * them, so requests cannot starve the pool as long as that is below the connection pool size.
+ */
+@Component
+public class ParallelReadExecutor {
+
+	private final boolean enabled;
+
+	private final ThreadPoolExecutor executor;
+
+	public ParallelReadExecutor(@Value("${gradebook.parallel-reads.enabled:false}") boolean enabled,
+								@Value("${gradebook.parallel-reads.threads:4}") int threads) {
+		this.enabled = enabled;
+		AtomicInteger threadNumber = new AtomicInteger();
+		this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(threads * 16),
+				task -> {
+					Thread thread = new Thread(task, "parallel-read-" + threadNumber.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				},
+				new ThreadPoolExecutor.CallerRunsPolicy());
+		this.executor.allowCoreThreadTimeOut(true);
+	}
+
+	public <T> CompletableFuture<T> submit(Supplier<T> read) {
+		if (!enabled) {
+			return CompletableFuture.completedFuture(read.get());
+		}
+		ParallelRead<T> parallelRead = new ParallelRead<>(StatementCounter.propagate(read));
+		executor.execute(parallelRead);
+		return parallelRead;
+	}
+
+	/**
+	 * Waits for the read, or runs it here if no worker has started it yet, and rethrows its
+	 * failure unwrapped.
+	 */
+	public static <T> T join(CompletableFuture<T> read) {
+		if (read instanceof ParallelRead) {
+			((ParallelRead<T>) read).run();
+		}
+		try {
+			return read.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		executor.shutdown();
+	}
+
+	/**
+	 * A read run by whichever comes first, a worker or the caller joining it.
+	 */
+	private static final class ParallelRead<T> extends CompletableFuture<T> implements Runnable {
+
+		private final Supplier<T> read;
+
+		private final AtomicBoolean started = new AtomicBoolean();
+
+		ParallelRead(Supplier<T> read) {
+			this.read = read;
+		}
+
+		@Override
+		public void run() {
+			if (!started.compareAndSet(false, true)) {
+				return;
+			}
+			try {
+				complete(read.get());
+			} catch (Throwable e) {
+				completeExceptionally(e);
+			}
+		}
+	}
+}
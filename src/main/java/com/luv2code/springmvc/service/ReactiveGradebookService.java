@@ -0,0 +1,135 @@
+package com.luv2code.springmvc.service;
+
+import com.luv2code.springmvc.models.GradebookCollegeStudent;
+import com.luv2code.springmvc.models.StudentGradeRow;
+import io.r2dbc.spi.Row;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking reads of the gradebook over R2DBC. Writes stay on {@link StudentAndGradeService},
+ * which owns the transactions, the summary store and the cache.
+ *
+ * <p>A single student is read through the same studentInformation cache as the blocking endpoint:
+ * a cached student is served without a query, and a loaded one is cached unless a write evicted
+ * it meanwhile.
+ *
+ * <p>Both queries return students joined with their grades ordered by student id, so the rows of
+ * one student are adjacent and each student is assembled as soon as its last row arrives. Rows are
+ * pulled from the driver as the subscriber requests students.
+ */
+@Service
+public class ReactiveGradebookService {
+
+	private static final String STUDENT_GRADES_SQL = "select s.id, s.firstname, s.lastname, s.email_address, " +
+			"g.subject, g.id, g.grade from student s left join grade g on g.student_id = s.id ";
+
+	@Autowired
+	private DatabaseClient databaseClient;
+
+	@Autowired
+	private StudentAndGradeService studentService;
+
+	@Autowired
+	private CacheManager cacheManager;
+
+	public Flux<GradebookCollegeStudent> getGradebook() {
+		return databaseClient.sql(STUDENT_GRADES_SQL + "order by s.id, g.id")
+				.map(ReactiveGradebookService::toStudentGradeRow)
+				.all()
+				.bufferUntilChanged(StudentGradeRow::getStudentId)
+				.map(GradebookAssembler::assembleStudent);
+	}
+
+	public Mono<GradebookCollegeStudent> studentInformation(int id) {
+		return Mono.defer(() -> {
+			Cache cache = cacheManager.getCache(StudentAndGradeService.STUDENT_INFORMATION_CACHE);
+			GradebookCollegeStudent cached = cache != null ? cache.get(id, GradebookCollegeStudent.class) : null;
+			if (cached != null) {
+				return Mono.just(cached);
+			}
+
+			long version = studentService.studentInformationVersion(id);
+			return databaseClient.sql(STUDENT_GRADES_SQL + "where s.id = :id order by g.id")
+					.bind("id", id)
+					.map(ReactiveGradebookService::toStudentGradeRow)
+					.all()
+					.collectList()
+					.mapNotNull(GradebookAssembler::assembleStudent)
+					.doOnNext(student -> studentService.cacheIfCurrent(id, version, student));
+		});
+	}
+
+	private static StudentGradeRow toStudentGradeRow(Row row) {
+		return new ResultRow(row.get(0, Integer.class), row.get(1, String.class), row.get(2, String.class),
+				row.get(3, String.class), row.get(4, String.class), row.get(5, Integer.class), row.get(6, Double.class));
+	}
+
+	private static final class ResultRow implements StudentGradeRow {
+
+		private final int studentId;
+
+		private final String firstname;
+
+		private final String lastname;
+
+		private final String emailAddress;
+
+		private final String subject;
+
+		private final Integer gradeId;
+
+		private final Double grade;
+
+		ResultRow(int studentId, String firstname, String lastname, String emailAddress,
+				  String subject, Integer gradeId, Double grade) {
+			this.studentId = studentId;
+			this.firstname = firstname;
+			this.lastname = lastname;
+			this.emailAddress = emailAddress;
+			this.subject = subject;
+			this.gradeId = gradeId;
+			this.grade = grade;
+		}
+
+		@Override
+		public int getStudentId() {
+			return studentId;
+		}
+
+		@Override
+		public String getFirstname() {
+			return firstname;
+		}
+
+		@Override
+		public String getLastname() {
+			return lastname;
+		}
+
+		@Override
+		public String getEmailAddress() {
+			return emailAddress;
+		}
+
+		@Override
+		public String getSubject() {
+			return subject;
+		}
+
+		@Override
+		public Integer getGradeId() {
+			return gradeId;
+		}
+
+		@Override
+		public Double getGrade() {
+			return grade;
+		}
+	}
+}
@@ -1,67 +1,129 @@
 package com.luv2code.springmvc.service;
 
 import com.luv2code.springmvc.models.*;
-import com.luv2code.springmvc.repository.HistoryGradesDao;
-import com.luv2code.springmvc.repository.MathGradesDao;
-import com.luv2code.springmvc.repository.ScienceGradesDao;
+import com.luv2code.springmvc.repository.GradeDao;
 import com.luv2code.springmvc.repository.StudentDao;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.ui.Model;
 
-import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Collectors;
 
 @Service
 @Transactional
 public class StudentAndGradeService {
 
+	public static final String STUDENT_INFORMATION_CACHE = "studentInformation";
+
+	public static final String ROWS_MATERIALIZED_METRIC = "gradebook.roster.rows";
+
+	private static final int EVICTION_STRIPES = 1024;
+
 	@Autowired
 	private StudentDao studentDao;
 
 	@Autowired
-	private MathGradesDao mathGradeDao;
+	private GradeDao gradeDao;
 
 	@Autowired
-	private ScienceGradesDao scienceGradeDao;
+	private GradeSummaryStore gradeSummaryStore;
 
 	@Autowired
-	private HistoryGradesDao historyGradeDao;
+	private GradeLeaderboard leaderboard;
 
 	@Autowired
-	@Qualifier("mathGrades")
-	private MathGrade mathGrade;
+	private CacheManager cacheManager;
 
 	@Autowired
-	@Qualifier("scienceGrades")
-	private ScienceGrade scienceGrade;
+	private ParallelReadExecutor parallelReads;
 
 	@Autowired
-	@Qualifier("historyGrades")
-	private HistoryGrade historyGrade;
+	private MeterRegistry meterRegistry;
 
 	@Autowired
-	StudentGrades studentGrades;
+	private ApplicationEventPublisher eventPublisher;
+
+	/**
+	 * Seeded from the boot time in microseconds, so versions keep increasing across restarts
+	 * and a client holding a version from before a restart sees a gap, not a match.
+	 */
+	private final AtomicLong rosterVersion = new AtomicLong(System.currentTimeMillis() * 1000);
+
+	/** Evictions per stripe of student ids, bounded memory at the cost of rare needless misses. */
+	private final AtomicLongArray evictions = new AtomicLongArray(EVICTION_STRIPES);
 
-	public void createStudent(String firstname, String lastname, String emailAddress){
+	public CollegeStudent createStudent(String firstname, String lastname, String emailAddress){
 
 		CollegeStudent student = new CollegeStudent(firstname, lastname, emailAddress);
 
 		student.setId(0);
 
-		studentDao.save(student);
+		CollegeStudent saved = studentDao.save(student);
+		afterCommit(() -> {
+			rosterVersion.incrementAndGet();
+			eventPublisher.publishEvent(GradebookChangedEvent.INSTANCE);
+		});
+		return saved;
+	}
+
+	/**
+	 * Bumped after every committed student create or delete. Read it before loading
+	 * the roster, so the roster is never older than the version reported with it.
+	 * Versions are per instance: behind a load balancer, a client talking to another
+	 * instance sees a gap and reloads the roster.
+	 */
+	public long getRosterVersion() {
+		return rosterVersion.get();
 	}
 
 	public void deleteStudent(int id){
-		if (checkIfStudentIsNull(id)) {
-			studentDao.deleteById(id);
-			mathGradeDao.deleteByStudentId(id);
-			scienceGradeDao.deleteByStudentId(id);
-			historyGradeDao.deleteByStudentId(id);
+		deleteStudents(List.of(id));
+	}
+
+	/**
+	 * Deletes the students and all their grades with one set-based statement per table.
+	 * Ids of students that do not exist are ignored.
+	 *
+	 * <p>Students go first: a grade inserted only while its student exists, as the write-behind
+	 * buffer does, then either waits for this delete and finds no student, or commits before
+	 * and is deleted here.
+	 *
+	 * @return the number of students deleted
+	 */
+	public int deleteStudents(Collection<Integer> ids){
+
+		if (ids.isEmpty()) {
+			return 0;
 		}
+
+		int deleted = studentDao.deleteAllByIdIn(ids);
+		gradeDao.deleteAllByStudentIdIn(ids);
+
+		if (deleted > 0) {
+			studentsRemovedAfterCommit(List.copyOf(ids));
+		}
+		return deleted;
 	}
 
 	public boolean checkIfStudentIsNull(int id){
@@ -69,165 +131,164 @@ public class StudentAndGradeService {
 		return student.isPresent();
 	}
 
+	/**
+	 * The student with grades and summaries, or null when there is no such student. Served from
+	 * the studentInformation cache; a student loaded while a write evicted it is not cached.
+	 */
 	public GradebookCollegeStudent studentInformation(int id) {
-		Optional<CollegeStudent> student = studentDao.findById(id);
 
-		if (student.isEmpty()) {
-			return null;
+		Cache cache = cacheManager.getCache(STUDENT_INFORMATION_CACHE);
+		GradebookCollegeStudent cached = cache != null ? cache.get(id, GradebookCollegeStudent.class) : null;
+		if (cached != null) {
+			return cached;
 		}
 
-		Iterable<MathGrade> mathGrades = mathGradeDao.findGradeByStudentId(id);
-
-		Iterable<ScienceGrade> scienceGrades = scienceGradeDao.findGradeByStudentId(id);
+		long version = studentInformationVersion(id);
+		GradebookCollegeStudent student = loadStudentInformation(id);
+		if (student != null) {
+			cacheIfCurrent(id, version, student);
+		}
+		return student;
+	}
 
-		Iterable<HistoryGrade> historyGrades = historyGradeDao.findGradeByStudentId(id);
+	private GradebookCollegeStudent loadStudentInformation(int id) {
 
-		List<Grade> mathGradesList = new ArrayList<>();
-		mathGrades.forEach(mathGradesList::add);
+		long generation = gradeSummaryStore.generation(id);
+		SubjectGradeSummary[] summaries = gradeSummaryStore.get(id);
 
-		List<Grade> scienceGradesList = new ArrayList<>();
-		scienceGrades.forEach(scienceGradesList::add);
+		List<StudentGradeRow> rows = studentDao.findStudentWithGrades(id);
 
-		List<Grade> historyGradesList = new ArrayList<>();
-		historyGrades.forEach(historyGradesList::add);
+		//a grade write in between makes the summaries older than the rows, recompute them
+		if (summaries != null && gradeSummaryStore.generation(id) != generation) {
+			summaries = null;
+		}
 
+		GradebookCollegeStudent student = GradebookAssembler.assembleStudent(rows, summaries);
 
-		studentGrades.setMathGradeResults(mathGradesList);
-		studentGrades.setScienceGradeResults(scienceGradesList);
-		studentGrades.setHistoryGradeResults(historyGradesList);
+		//publish summaries that had to be computed from the rows, missing or disagreeing ones
+		if (student != null && (summaries == null || student.getStudentGrades().getMathGradeSummary() != summaries[0])) {
+			gradeSummaryStore.putIfCurrent(id, generation, student.getStudentGrades());
+		}
 
-		return new GradebookCollegeStudent(student.get().getId(), student.get().getFirstname(), student.get().getLastname(),
-				student.get().getEmailAddress(), studentGrades);
+		return student;
 	}
 
-	public boolean checkIfGradeIsNull(int id, String gradeType){
-		if (gradeType.equals("math")) {
-			Optional<MathGrade> grade = mathGradeDao.findById(id);
-			if (grade.isPresent()) {
-				return true;
+	/**
+	 * Batch variant of {@link #studentInformation(int)}, keyed by id in request order, leaving out
+	 * unknown ids. Cached students are reused and the others are loaded with one IN query on
+	 * students and one on grades, then cached, so a batch costs at most two queries.
+	 */
+	public Map<Integer, GradebookCollegeStudent> studentsInformation(Collection<Integer> ids) {
+
+		Map<Integer, GradebookCollegeStudent> students = new LinkedHashMap<>();
+		Set<Integer> missing = new LinkedHashSet<>();
+		Cache cache = cacheManager.getCache(STUDENT_INFORMATION_CACHE);
+		for (Integer id : ids) {
+			GradebookCollegeStudent cached = cache != null ? cache.get(id, GradebookCollegeStudent.class) : null;
+			students.put(id, cached);
+			if (cached == null) {
+				missing.add(id);
 			}
 		}
-		if (gradeType.equals("science")) {
-			Optional<ScienceGrade> grade = scienceGradeDao.findById(id);
-			if (grade.isPresent()) {
-				return true;
+
+		if (!missing.isEmpty()) {
+			Map<Integer, Long> versions = new HashMap<>();
+			missing.forEach(id -> versions.put(id, studentInformationVersion(id)));
+			List<CollegeStudent> collegeStudents = studentDao.findByIdIn(missing);
+			Gradebook loaded = collegeStudents.isEmpty() ? new Gradebook()
+					: GradebookAssembler.assemble(collegeStudents, gradeDao.findGradeByStudentIdIn(missing));
+			for (GradebookCollegeStudent student : loaded.getStudents()) {
+				students.put(student.getId(), student);
+				cacheIfCurrent(student.getId(), versions.get(student.getId()), student);
 			}
 		}
-		if (gradeType.equals("history")) {
-			Optional<HistoryGrade> grade = historyGradeDao.findById(id);
-			return grade.isPresent();
-		}
 
-		return false;
+		students.values().removeIf(Objects::isNull);
+		return students;
+	}
+
+	public boolean checkIfGradeIsNull(int id, String gradeType){
+		return findGrade(id, gradeType).isPresent();
 	}
 
 	public int deleteGrade(int id, String gradeType) {
 
-		int studentId = 0;
+		Optional<SubjectGrade> grade = findGrade(id, gradeType);
 
-		if (gradeType.equals("math")) {
-			Optional<MathGrade> grade = mathGradeDao.findById(id);
-			if (grade.isEmpty()) {
-				return studentId;
-			}
-			studentId = grade.get().getStudentId();
-			mathGradeDao.deleteById(id);
+		if (grade.isEmpty()) {
+			return 0;
 		}
 
-		if (gradeType.equals("science")) {
-			Optional<ScienceGrade> grade = scienceGradeDao.findById(id);
-			if (grade.isEmpty()) {
-				return studentId;
-			}
-			studentId = grade.get().getStudentId();
-			scienceGradeDao.deleteById(id);
-		}
-
-		if (gradeType.equals("history")) {
-			Optional<HistoryGrade> grade = historyGradeDao.findById(id);
-			if (grade.isEmpty()) {
-				return studentId;
-			}
-			studentId = grade.get().getStudentId();
-			historyGradeDao.deleteById(id);
-		}
+		int studentId = grade.get().getStudentId();
+		gradeDao.deleteById(id);
+		gradeRemovedAfterCommit(studentId, gradeType, grade.get().getGrade());
 
 		return studentId;
 	}
 
-	public boolean createGrade(double grade, int studentId, String gradeType) {
-		if (grade >= 0 && grade <= 100) {
-			if (gradeType.equals("math")) {
-				mathGrade.setId(0);
-				mathGrade.setGrade(grade);
-				mathGrade.setStudentId(studentId);
-				mathGradeDao.save(mathGrade);
-				return true;
-			}
-
-			if (gradeType.equals("science")) {
-				scienceGrade.setId(0);
-				scienceGrade.setGrade(grade);
-				scienceGrade.setStudentId(studentId);
-				scienceGradeDao.save(scienceGrade);
-				return true;
-			}
+	private Optional<SubjectGrade> findGrade(int id, String gradeType) {
+		return gradeDao.findById(id).filter(grade -> grade.getSubject().equals(gradeType));
+	}
 
-			if (gradeType.equals("history")) {
-				historyGrade.setId(0);
-				historyGrade.setGrade(grade);
-				historyGrade.setStudentId(studentId);
-				historyGradeDao.save(historyGrade);
-				return true;
-			}
+	/**
+	 * Adds a grade to an existing student. Returns false, writing nothing, for a grade out of
+	 * range, an unknown grade type or a student that does not exist, or no longer does.
+	 */
+	public boolean createGrade(double grade, int studentId, String gradeType) {
+		if (grade >= 0 && grade <= 100 && SubjectGrade.create(gradeType, grade) != null
+				&& gradeDao.insertIfStudentExists(studentId, gradeType, grade) > 0) {
+			gradeAddedAfterCommit(studentId, gradeType, grade);
+			return true;
 		}
 		return false; //the reason is not clear: whether the mark was not in proper range or the
 	}
 
+	/**
+	 * The student and grade reads are independent, with parallel reads enabled they run
+	 * concurrently. Being separate snapshots, a grade of a student created in between is
+	 * dropped and a student deleted in between may still be listed.
+	 */
 	public Gradebook getGradebook () {
 
-		Iterable<CollegeStudent> collegeStudents = studentDao.findAll();
+		CompletableFuture<Iterable<CollegeStudent>> collegeStudents = parallelReads.submit(studentDao::findAll);
 
-		Iterable<MathGrade> mathGrades = mathGradeDao.findAll();
+		Iterable<SubjectGrade> grades = gradeDao.findAll();
 
-		Iterable<ScienceGrade> scienceGrades = scienceGradeDao.findAll();
+		return rowsMaterialized(GradebookAssembler.assemble(ParallelReadExecutor.join(collegeStudents), grades));
+	}
 
-		Iterable<HistoryGrade> historyGrades = historyGradeDao.findAll();
+	public Gradebook getGradebook(Pageable pageable) {
+		return getGradebookForStudents(studentDao.findAll(pageable).getContent());
+	}
 
-		Gradebook gradebook = new Gradebook();
+	public Gradebook getGradebookAfter(int afterId, int size) {
+		return getGradebookForStudents(studentDao.findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.of(0, size)));
+	}
 
-		for (CollegeStudent collegeStudent : collegeStudents) {
-			List<Grade> mathGradesPerStudent = new ArrayList<>();
-			List<Grade> scienceGradesPerStudent = new ArrayList<>();
-			List<Grade> historyGradesPerStudent = new ArrayList<>();
+	private Gradebook getGradebookForStudents(List<CollegeStudent> collegeStudents) {
 
-			for (MathGrade grade : mathGrades) {
-				if (grade.getStudentId() == collegeStudent.getId()) {
-					mathGradesPerStudent.add(grade);
-				}
-			}
-			for (ScienceGrade grade : scienceGrades) {
-				if (grade.getStudentId() == collegeStudent.getId()) {
-					scienceGradesPerStudent.add(grade);
-				}
-			}
+		if (collegeStudents.isEmpty()) {
+			return new Gradebook();
+		}
 
-			for (HistoryGrade grade : historyGrades) {
-				if (grade.getStudentId() == collegeStudent.getId()) {
-					historyGradesPerStudent.add(grade);
-				}
-			}
+		List<Integer> studentIds = collegeStudents.stream()
+				.map(CollegeStudent::getId)
+				.collect(Collectors.toList());
 
-			studentGrades.setMathGradeResults(mathGradesPerStudent);
-			studentGrades.setScienceGradeResults(scienceGradesPerStudent);
-			studentGrades.setHistoryGradeResults(historyGradesPerStudent);
+		Iterable<SubjectGrade> grades = gradeDao.findGradeByStudentIdIn(studentIds);
 
-			GradebookCollegeStudent gradebookCollegeStudent = new GradebookCollegeStudent(collegeStudent.getId(), collegeStudent.getFirstname(), collegeStudent.getLastname(),
-					collegeStudent.getEmailAddress(), studentGrades);
+		return rowsMaterialized(GradebookAssembler.assemble(collegeStudents, grades));
+	}
 
-			gradebook.getStudents().add(gradebookCollegeStudent);
+	private Gradebook rowsMaterialized(Gradebook gradebook) {
+		long grades = 0;
+		for (GradebookCollegeStudent student : gradebook.getStudents()) {
+			StudentGrades studentGrades = student.getStudentGrades();
+			grades += studentGrades.getMathGradeResults().size() + studentGrades.getScienceGradeResults().size()
+					+ studentGrades.getHistoryGradeResults().size();
 		}
-
+		meterRegistry.counter(ROWS_MATERIALIZED_METRIC, "table", "student").increment(gradebook.getStudents().size());
+		meterRegistry.counter(ROWS_MATERIALIZED_METRIC, "table", "grade").increment(grades);
 		return gradebook;
 	}
 
@@ -237,20 +298,94 @@ public class StudentAndGradeService {
 
 		m.addAttribute("student", studentEntity);
 
-		if (studentEntity.getStudentGrades().getMathGradeResults().size() > 0) {
-			m.addAttribute("mathAverage", studentEntity.getStudentGrades().findGradePointAverage(studentEntity.getStudentGrades().getMathGradeResults()));
-		} else {
-			m.addAttribute("mathAverage", "N/A");
+		addAverageAttribute(m, "mathAverage", studentEntity.getStudentGrades().getMathGradeSummary());
+		addAverageAttribute(m, "scienceAverage", studentEntity.getStudentGrades().getScienceGradeSummary());
+		addAverageAttribute(m, "historyAverage", studentEntity.getStudentGrades().getHistoryGradeSummary());
+	}
+
+	private static void addAverageAttribute(Model m, String attributeName, SubjectGradeSummary summary) {
+		Double average = summary.getAverage();
+		m.addAttribute(attributeName, average != null ? average : "N/A");
+	}
+
+	private void studentsRemovedAfterCommit(List<Integer> studentIds) {
+		afterCommit(() -> {
+			rosterVersion.incrementAndGet();
+			for (int studentId : studentIds) {
+				gradeSummaryStore.studentRemoved(studentId);
+				leaderboard.studentRemoved(studentId);
+				evictStudentInformation(studentId);
+			}
+			eventPublisher.publishEvent(GradebookChangedEvent.INSTANCE);
+		});
+	}
+
+	private void gradeAddedAfterCommit(int studentId, String gradeType, double grade) {
+		afterCommit(() -> {
+			gradeSummaryStore.gradeAdded(studentId, gradeType, grade);
+			leaderboard.gradeAdded(studentId, gradeType, grade);
+			evictStudentInformation(studentId);
+			eventPublisher.publishEvent(GradebookChangedEvent.INSTANCE);
+		});
+	}
+
+	private void gradeRemovedAfterCommit(int studentId, String gradeType, double grade) {
+		afterCommit(() -> {
+			gradeSummaryStore.gradeRemoved(studentId, gradeType, grade);
+			leaderboard.gradeRemoved(studentId, gradeType, grade);
+			evictStudentInformation(studentId);
+			eventPublisher.publishEvent(GradebookChangedEvent.INSTANCE);
+		});
+	}
+
+	public void evictStudentInformation(int studentId) {
+		//bumped first, so a reader that loaded the old rows either sees it or is evicted afterwards
+		evictions.incrementAndGet(evictionStripe(studentId));
+		Cache cache = cacheManager.getCache(STUDENT_INFORMATION_CACHE);
+		if (cache != null) {
+			cache.evict(studentId);
+		}
+	}
+
+	/**
+	 * Taken by a reader before it queries, to tell whether the student was evicted meanwhile.
+	 */
+	long studentInformationVersion(int studentId) {
+		return evictions.get(evictionStripe(studentId));
+	}
+
+	/**
+	 * Caches a loaded student unless it was evicted since the reader took {@code version}. The
+	 * check after the put covers an eviction that lands between the check and the put.
+	 */
+	void cacheIfCurrent(int studentId, long version, GradebookCollegeStudent student) {
+		Cache cache = cacheManager.getCache(STUDENT_INFORMATION_CACHE);
+		if (cache == null || studentInformationVersion(studentId) != version) {
+			return;
 		}
-		if (studentEntity.getStudentGrades().getScienceGradeResults().size() > 0) {
-			m.addAttribute("scienceAverage", studentEntity.getStudentGrades().findGradePointAverage(studentEntity.getStudentGrades().getScienceGradeResults()));
-		} else {
-			m.addAttribute("scienceAverage", "N/A");
+		cache.put(studentId, student);
+		if (studentInformationVersion(studentId) != version) {
+			cache.evict(studentId);
 		}
-		if (studentEntity.getStudentGrades().getHistoryGradeResults().size() > 0) {
-			m.addAttribute("historyAverage", studentEntity.getStudentGrades().findGradePointAverage(studentEntity.getStudentGrades().getHistoryGradeResults()));
-		} else {
-			m.addAttribute("historyAverage", "N/A");
+	}
+
+	private static int evictionStripe(int studentId) {
+		return Math.floorMod(studentId, EVICTION_STRIPES);
+	}
+
+	/**
+	 * In-memory state must only change once the database change is visible to other readers.
+	 */
+	private static void afterCommit(Runnable action) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			action.run();
+			return;
 		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCommit() {
+				action.run();
+			}
+		});
 	}
 }
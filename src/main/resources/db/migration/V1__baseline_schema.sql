@@ -0,0 +1,31 @@
+-- Schema as created by spring.jpa.hibernate.ddl-auto=update before migrations were introduced.
+-- Existing databases are baselined at this version and skip this script.
+
+create table student (
+    id integer not null auto_increment,
+    email_address varchar(255),
+    firstname varchar(255),
+    lastname varchar(255),
+    primary key (id)
+);
+
+create table math_grade (
+    id integer not null auto_increment,
+    grade double precision not null,
+    student_id integer not null,
+    primary key (id)
+);
+
+create table science_grade (
+    id integer not null auto_increment,
+    grade double precision not null,
+    student_id integer not null,
+    primary key (id)
+);
+
+create table history_grade (
+    id integer not null auto_increment,
+    grade double precision not null,
+    student_id integer not null,
+    primary key (id)
+);
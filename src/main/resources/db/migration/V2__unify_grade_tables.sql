@@ -0,0 +1,21 @@
+-- Moves math_grade, science_grade and history_grade into the single grade table.
+-- Grade ids are renumbered, as the three tables used overlapping id ranges.
+-- The (student_id, subject) index also serves lookups and deletes by student_id alone.
+
+create table grade (
+    id integer not null auto_increment,
+    subject varchar(16) not null,
+    student_id integer not null,
+    grade double precision not null,
+    primary key (id)
+);
+
+create index idx_grade_student_subject on grade (student_id, subject);
+
+insert into grade (subject, student_id, grade) select 'math', student_id, grade from math_grade order by id;
+insert into grade (subject, student_id, grade) select 'science', student_id, grade from science_grade order by id;
+insert into grade (subject, student_id, grade) select 'history', student_id, grade from history_grade order by id;
+
+drop table math_grade;
+drop table science_grade;
+drop table history_grade;
@@ -0,0 +1,20 @@
+-- findByEmailAddress scanned the whole student table, and nothing stopped duplicate addresses.
+-- Existing duplicates are merged into the lowest student id of each address first: their grades
+-- move to that student and the other rows are deleted. Students without an address are left alone.
+-- The derived tables keep MySQL from rejecting a subquery on the table being modified.
+
+update grade
+set student_id = (select min(kept.id)
+                  from student kept
+                  join student duplicate on duplicate.email_address = kept.email_address
+                  where duplicate.id = grade.student_id)
+where student_id in (select id from (select duplicate.id
+                                     from student duplicate
+                                     join student kept on kept.email_address = duplicate.email_address
+                                                      and kept.id < duplicate.id) duplicates);
+
+delete from student
+where email_address is not null
+  and id not in (select id from (select min(id) as id from student group by email_address) kept);
+
+create unique index uk_student_email_address on student (email_address);
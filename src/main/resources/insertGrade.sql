@@ -1,38 +1,38 @@
-insert into math_grade(id,student_id,grade) values (11,11,100.00)
-insert into math_grade(id,student_id,grade) values (12,11,95.00)
+insert into grade(id,student_id,subject,grade) values (11,11,'math',100.00)
+insert into grade(id,student_id,subject,grade) values (12,11,'math',95.00)
 
-insert into math_grade(id,student_id,grade) values (13,12,83.25)
-insert into math_grade(id,student_id,grade) values (14,12,79.67)
+insert into grade(id,student_id,subject,grade) values (13,12,'math',83.25)
+insert into grade(id,student_id,subject,grade) values (14,12,'math',79.67)
 
-insert into math_grade(id,student_id,grade) values (15,13,81.80)
-insert into math_grade(id,student_id,grade) values (16,13,100.00)
+insert into grade(id,student_id,subject,grade) values (15,13,'math',81.80)
+insert into grade(id,student_id,subject,grade) values (16,13,'math',100.00)
 
-insert into math_grade(id,student_id,grade) values (17,14,60.50)
-insert into math_grade(id,student_id,grade) values (18,14,59.00)
+insert into grade(id,student_id,subject,grade) values (17,14,'math',60.50)
+insert into grade(id,student_id,subject,grade) values (18,14,'math',59.00)
 
-insert into science_grade(id,student_id,grade) values (11,11,100.00)
-insert into science_grade(id,student_id,grade) values (12,11,95.00)
+insert into grade(id,student_id,subject,grade) values (21,11,'science',100.00)
+insert into grade(id,student_id,subject,grade) values (22,11,'science',95.00)
 
-insert into science_grade(id,student_id,grade) values (13,12,83.25)
-insert into science_grade(id,student_id,grade) values (14,12,79.67)
+insert into grade(id,student_id,subject,grade) values (23,12,'science',83.25)
+insert into grade(id,student_id,subject,grade) values (24,12,'science',79.67)
 
-insert into science_grade(id,student_id,grade) values (15,13,81.80)
-insert into science_grade(id,student_id,grade) values (16,13,100.00)
+insert into grade(id,student_id,subject,grade) values (25,13,'science',81.80)
+insert into grade(id,student_id,subject,grade) values (26,13,'science',100.00)
 
-insert into science_grade(id,student_id,grade) values (17,14,60.50)
-insert into science_grade(id,student_id,grade) values (18,14,59.00)
+insert into grade(id,student_id,subject,grade) values (27,14,'science',60.50)
+insert into grade(id,student_id,subject,grade) values (28,14,'science',59.00)
 
-insert into history_grade(id,student_id,grade) values (11,11,100.00)
-insert into history_grade(id,student_id,grade) values (12,11,95.00)
+insert into grade(id,student_id,subject,grade) values (31,11,'history',100.00)
+insert into grade(id,student_id,subject,grade) values (32,11,'history',95.00)
 
-insert into history_grade(id,student_id,grade) values (13,12,83.25)
-insert into history_grade(id,student_id,grade) values (14,12,79.67)
+insert into grade(id,student_id,subject,grade) values (33,12,'history',83.25)
+insert into grade(id,student_id,subject,grade) values (34,12,'history',79.67)
 
-insert into history_grade(id,student_id,grade) values (15,13,81.80)
-insert into history_grade(id,student_id,grade) values (16,13,100.00)
+insert into grade(id,student_id,subject,grade) values (35,13,'history',81.80)
+insert into grade(id,student_id,subject,grade) values (36,13,'history',100.00)
 
-insert into history_grade(id,student_id,grade) values (17,14,60.50)
-insert into history_grade(id,student_id,grade) values (18,14,59.00)
+insert into grade(id,student_id,subject,grade) values (37,14,'history',60.50)
+insert into grade(id,student_id,subject,grade) values (38,14,'history',59.00)
 
 
 
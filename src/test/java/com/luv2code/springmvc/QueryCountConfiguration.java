@@ -0,0 +1,53 @@
+package com.luv2code.springmvc;
+
+import net.ttddyy.dsproxy.QueryCount;
+import net.ttddyy.dsproxy.listener.SingleQueryCountHolder;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import javax.sql.DataSource;
+
+/**
+ * Wraps the application DataSource so tests can put a budget on the statements an
+ * operation issues. Each test context counts its own statements, so the background
+ * rebuilds and writes of other cached contexts, e.g. the snapshot or write-behind ones,
+ * are not included. Within a context counts are global rather than per thread, so reads
+ * that run on the parallel read pool are included; budget tests run in contexts without
+ * background threads, one at a time.
+ */
+@TestConfiguration(proxyBeanMethods = false)
+public class QueryCountConfiguration {
+
+    @Bean
+    static QueryCounter queryCounter() {
+        return new QueryCounter();
+    }
+
+    public static class QueryCounter implements BeanPostProcessor {
+
+        private final SingleQueryCountHolder counts = new SingleQueryCountHolder();
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (bean instanceof DataSource) {
+                return ProxyDataSourceBuilder.create(beanName, (DataSource) bean)
+                        .countQuery(counts)
+                        .build();
+            }
+            return bean;
+        }
+
+        public void reset() {
+            counts.clear();
+        }
+
+        /**
+         * Statements executed in this context since the last {@link #reset()}.
+         */
+        public long statements() {
+            return counts.getQueryCountMap().values().stream().mapToLong(QueryCount::getTotal).sum();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.luv2code.springmvc.benchmark;
+
+import com.luv2code.springmvc.MvcTestingExampleApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Starts the application against a private in-memory H2 database and seeds it
+ * with a synthetic roster, for benchmarks that need the real service and DAO stack.
+ */
+final class BenchmarkDatabase {
+
+    private static final int BATCH_SIZE = 10_000;
+
+    private BenchmarkDatabase() {
+    }
+
+    static ConfigurableApplicationContext start(String name, String... extraProperties) {
+        return start(WebApplicationType.NONE, name, extraProperties);
+    }
+
+    /**
+     * Like {@link #start(String, String...)} but with the embedded web server listening on a random port.
+     */
+    static ConfigurableApplicationContext startServer(String name, String... extraProperties) {
+        List<String> properties = new ArrayList<>(List.of(extraProperties));
+        properties.add("server.port=0");
+        return start(WebApplicationType.SERVLET, name, properties.toArray(new String[0]));
+    }
+
+    private static ConfigurableApplicationContext start(WebApplicationType webApplicationType, String name,
+                                                        String... extraProperties) {
+        List<String> properties = new ArrayList<>(List.of(
+                "spring.profiles.active=test",
+                "spring.datasource.url=jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1",
+                "spring.jpa.show-sql=false",
+                "spring.cache.type=none",
+                "logging.level.root=WARN"));
+        properties.addAll(List.of(extraProperties));
+        //passed as command line arguments so they take precedence over the application properties files
+        return new SpringApplicationBuilder(MvcTestingExampleApplication.class)
+                .web(webApplicationType)
+                .run(properties.stream().map(property -> "--" + property).toArray(String[]::new));
+    }
+
+    /**
+     * Inserts students with ids 1..students, each with gradesPerStudent grades per subject.
+     */
+    static void seed(JdbcTemplate jdbc, int students, int gradesPerStudent) {
+        Random rnd = new Random(42);
+
+        List<Object[]> studentRows = new ArrayList<>(BATCH_SIZE);
+        for (int id = 1; id <= students; id++) {
+            studentRows.add(new Object[]{id, "First" + id, "Last" + id, "student" + id + "@luv2code_school.com"});
+            if (studentRows.size() == BATCH_SIZE) {
+                jdbc.batchUpdate("insert into student(id,firstname,lastname,email_address) values (?,?,?,?)", studentRows);
+                studentRows.clear();
+            }
+        }
+        jdbc.batchUpdate("insert into student(id,firstname,lastname,email_address) values (?,?,?,?)", studentRows);
+
+        for (String subject : List.of("math", "science", "history")) {
+            String insert = "insert into grade(student_id,subject,grade) values (?,?,?)";
+            List<Object[]> gradeRows = new ArrayList<>(BATCH_SIZE);
+            for (int id = 1; id <= students; id++) {
+                for (int i = 0; i < gradesPerStudent; i++) {
+                    gradeRows.add(new Object[]{id, subject, Math.round(rnd.nextDouble(100) * 100) / 100.0});
+                    if (gradeRows.size() == BATCH_SIZE) {
+                        jdbc.batchUpdate(insert, gradeRows);
+                        gradeRows.clear();
+                    }
+                }
+            }
+            jdbc.batchUpdate(insert, gradeRows);
+        }
+    }
+}
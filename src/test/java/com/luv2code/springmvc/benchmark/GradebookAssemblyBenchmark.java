@@ -0,0 +1,110 @@
+package com.luv2code.springmvc.benchmark;
+
+import com.luv2code.springmvc.models.*;
+import com.luv2code.springmvc.service.GradebookAssembler;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the hash-join gradebook assembly against the nested-loop version it replaced.
+ * The nested loop grows with students x grades, the hash join with students + grades.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+public class GradebookAssemblyBenchmark {
+
+    @Param({"1000", "5000", "20000"})
+    private int students;
+
+    @Param({"3"})
+    private int gradesPerStudent;
+
+    private List<CollegeStudent> collegeStudents;
+    private List<MathGrade> mathGrades;
+    private List<ScienceGrade> scienceGrades;
+    private List<HistoryGrade> historyGrades;
+    private List<SubjectGrade> grades;
+
+    @Setup
+    public void setUp() {
+        Random rnd = new Random(42);
+        collegeStudents = new ArrayList<>(students);
+        mathGrades = new ArrayList<>();
+        scienceGrades = new ArrayList<>();
+        historyGrades = new ArrayList<>();
+
+        for (int id = 1; id <= students; id++) {
+            CollegeStudent student = new CollegeStudent("First" + id, "Last" + id, "student" + id + "@luv2code_school.com");
+            student.setId(id);
+            collegeStudents.add(student);
+            for (int i = 0; i < gradesPerStudent; i++) {
+                MathGrade math = new MathGrade(rnd.nextDouble(100));
+                math.setStudentId(id);
+                mathGrades.add(math);
+                ScienceGrade science = new ScienceGrade(rnd.nextDouble(100));
+                science.setStudentId(id);
+                scienceGrades.add(science);
+                HistoryGrade history = new HistoryGrade(rnd.nextDouble(100));
+                history.setStudentId(id);
+                historyGrades.add(history);
+            }
+        }
+        Collections.shuffle(mathGrades, rnd);
+        Collections.shuffle(scienceGrades, rnd);
+        Collections.shuffle(historyGrades, rnd);
+
+        grades = new ArrayList<>();
+        grades.addAll(mathGrades);
+        grades.addAll(scienceGrades);
+        grades.addAll(historyGrades);
+        Collections.shuffle(grades, rnd);
+    }
+
+    @Benchmark
+    public Gradebook hashJoin() {
+        return GradebookAssembler.assemble(collegeStudents, grades);
+    }
+
+    @Benchmark
+    public Gradebook nestedLoop() {
+        Gradebook gradebook = new Gradebook();
+
+        for (CollegeStudent collegeStudent : collegeStudents) {
+            List<Grade> mathGradesPerStudent = new ArrayList<>();
+            List<Grade> scienceGradesPerStudent = new ArrayList<>();
+            List<Grade> historyGradesPerStudent = new ArrayList<>();
+
+            for (MathGrade grade : mathGrades) {
+                if (grade.getStudentId() == collegeStudent.getId()) {
+                    mathGradesPerStudent.add(grade);
+                }
+            }
+            for (ScienceGrade grade : scienceGrades) {
+                if (grade.getStudentId() == collegeStudent.getId()) {
+                    scienceGradesPerStudent.add(grade);
+                }
+            }
+            for (HistoryGrade grade : historyGrades) {
+                if (grade.getStudentId() == collegeStudent.getId()) {
+                    historyGradesPerStudent.add(grade);
+                }
+            }
+
+            StudentGrades studentGrades = new StudentGrades(mathGradesPerStudent, scienceGradesPerStudent,
+                    historyGradesPerStudent);
+
+            gradebook.getStudents().add(new GradebookCollegeStudent(collegeStudent.getId(), collegeStudent.getFirstname(),
+                    collegeStudent.getLastname(), collegeStudent.getEmailAddress(), studentGrades));
+        }
+
+        return gradebook;
+    }
+}
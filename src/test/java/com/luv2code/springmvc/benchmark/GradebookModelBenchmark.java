@@ -0,0 +1,92 @@
+package com.luv2code.springmvc.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.luv2code.springmvc.models.*;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Model level costs that do not need a database: grade point averages and the JSON
+ * serialization of a single student, at different numbers of grades per subject, for
+ * the entity based and the compact representation.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class GradebookModelBenchmark {
+
+    @Param({"1", "10", "50"})
+    private int gradesPerStudent;
+
+    private final ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private GradebookCollegeStudent student;
+
+    private CompactGradebookStudent compactStudent;
+
+    @Setup
+    public void setUp() {
+        Random rnd = new Random(42);
+        List<Grade> mathGrades = new ArrayList<>();
+        List<Grade> scienceGrades = new ArrayList<>();
+        List<Grade> historyGrades = new ArrayList<>();
+        for (int i = 0; i < gradesPerStudent; i++) {
+            mathGrades.add(grade(new MathGrade(rnd.nextDouble(100)), i));
+            scienceGrades.add(grade(new ScienceGrade(rnd.nextDouble(100)), i));
+            historyGrades.add(grade(new HistoryGrade(rnd.nextDouble(100)), i));
+        }
+        student = new GradebookCollegeStudent(1, "Eric", "Roby", "eric.roby@luv2code_school.com",
+                new StudentGrades(mathGrades, scienceGrades, historyGrades));
+        compactStudent = new CompactGradebookStudent(1, "Eric", "Roby", "eric.roby@luv2code_school.com",
+                compact(mathGrades), compact(scienceGrades), compact(historyGrades));
+    }
+
+    private static CompactSubjectGrades compact(List<Grade> grades) {
+        int[] ids = new int[grades.size()];
+        double[] values = new double[grades.size()];
+        for (int i = 0; i < grades.size(); i++) {
+            ids[i] = grades.get(i).getId();
+            values[i] = grades.get(i).getGrade();
+        }
+        return new CompactSubjectGrades(ids, values);
+    }
+
+    private static Grade grade(Grade grade, int id) {
+        grade.setId(id + 1);
+        grade.setStudentId(1);
+        return grade;
+    }
+
+    @Benchmark
+    public double findGradePointAverage() {
+        StudentGrades studentGrades = student.getStudentGrades();
+        return studentGrades.findGradePointAverage(studentGrades.getMathGradeResults());
+    }
+
+    @Benchmark
+    public Double summaryAverage() {
+        return student.getStudentGrades().getMathGradeSummary().getAverage();
+    }
+
+    @Benchmark
+    public Double compactAverage() {
+        return compactStudent.getMath().getAverage();
+    }
+
+    @Benchmark
+    public byte[] serializeGradebookCollegeStudent() throws Exception {
+        return mapper.writeValueAsBytes(student);
+    }
+
+    @Benchmark
+    public byte[] serializeCompactGradebookStudent() throws Exception {
+        return mapper.writeValueAsBytes(compactStudent);
+    }
+}
@@ -0,0 +1,87 @@
+package com.luv2code.springmvc.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test of the HTTP endpoints with more concurrent clients than Tomcat worker threads,
+ * at a small and at the default worker pool size. The connection pool is the same for both,
+ * so the run shows where requests queue: for a worker or for a connection.
+ *
+ * <p>Run with {@code mvn -Pbenchmark,loadtest test}.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Threads(256)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class RequestConcurrencyBenchmark {
+
+    private static final String[] SUBJECTS = {"math", "science", "history"};
+
+    @Param({"32", "200"})
+    private int tomcatThreads;
+
+    @Param({"10000"})
+    private int students;
+
+    private ConfigurableApplicationContext context;
+
+    private HttpClient client;
+
+    private String baseUrl;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkDatabase.startServer("concurrency_benchmark",
+                "server.tomcat.threads.max=" + tomcatThreads,
+                "spring.datasource.hikari.maximum-pool-size=10");
+        BenchmarkDatabase.seed(context.getBean(JdbcTemplate.class), students, 3);
+        baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int studentInformation() throws IOException, InterruptedException {
+        int id = ThreadLocalRandom.current().nextInt(1, students + 1);
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/studentInformation/" + id)).GET().build();
+        return send(request);
+    }
+
+    @Benchmark
+    public int createGrade() throws IOException, InterruptedException {
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        String form = "grade=" + rnd.nextInt(101)
+                + "&gradeType=" + SUBJECTS[rnd.nextInt(SUBJECTS.length)]
+                + "&studentId=" + rnd.nextInt(1, students + 1);
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/grades"))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(form))
+                .build();
+        return send(request);
+    }
+
+    private int send(HttpRequest request) throws IOException, InterruptedException {
+        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(request.uri() + " returned " + response.statusCode());
+        }
+        return response.statusCode();
+    }
+}
@@ -0,0 +1,92 @@
+package com.luv2code.springmvc.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.luv2code.springmvc.models.*;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding time of a whole roster as JSON and as the binary formats served on request, CBOR
+ * and Smile. The payload size of each format is reported as the {@code payloadBytes} secondary
+ * result, so it ends up in the JSON results next to the encoding time.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ResponseFormatBenchmark {
+
+    @Param({"10000"})
+    private int students;
+
+    @Param({"3"})
+    private int gradesPerStudent;
+
+    @Param({"json", "cbor", "smile"})
+    private String format;
+
+    private ObjectMapper mapper;
+
+    private List<GradebookCollegeStudent> roster;
+
+    @Setup
+    public void setUp() throws Exception {
+        switch (format) {
+            case "cbor":
+                mapper = Jackson2ObjectMapperBuilder.json().factory(new CBORFactory()).build();
+                break;
+            case "smile":
+                mapper = Jackson2ObjectMapperBuilder.json().factory(new SmileFactory()).build();
+                break;
+            default:
+                mapper = Jackson2ObjectMapperBuilder.json().build();
+        }
+
+        Random rnd = new Random(42);
+        int gradeId = 0;
+        roster = new ArrayList<>(students);
+        for (int id = 1; id <= students; id++) {
+            List<Grade> mathGrades = new ArrayList<>();
+            List<Grade> scienceGrades = new ArrayList<>();
+            List<Grade> historyGrades = new ArrayList<>();
+            for (int i = 0; i < gradesPerStudent; i++) {
+                mathGrades.add(grade(new MathGrade(rnd.nextDouble(100)), ++gradeId, id));
+                scienceGrades.add(grade(new ScienceGrade(rnd.nextDouble(100)), ++gradeId, id));
+                historyGrades.add(grade(new HistoryGrade(rnd.nextDouble(100)), ++gradeId, id));
+            }
+            roster.add(new GradebookCollegeStudent(id, "First" + id, "Last" + id, "student" + id + "@luv2code_school.com",
+                    new StudentGrades(mathGrades, scienceGrades, historyGrades)));
+        }
+    }
+
+    private static Grade grade(Grade grade, int id, int studentId) {
+        grade.setId(id);
+        grade.setStudentId(studentId);
+        return grade;
+    }
+
+    @Benchmark
+    public byte[] encodeRoster(Payload payload) throws Exception {
+        byte[] encoded = mapper.writeValueAsBytes(roster);
+        payload.payloadBytes = encoded.length;
+        return encoded;
+    }
+
+    /**
+     * Size of the last roster encoded. An EVENTS counter is reported as is, not per operation.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Payload {
+
+        public long payloadBytes;
+    }
+}
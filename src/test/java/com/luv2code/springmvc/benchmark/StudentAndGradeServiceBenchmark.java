@@ -0,0 +1,71 @@
+package com.luv2code.springmvc.benchmark;
+
+import com.luv2code.springmvc.models.Gradebook;
+import com.luv2code.springmvc.models.GradebookCollegeStudent;
+import com.luv2code.springmvc.service.StudentAndGradeService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service hot paths against a seeded H2 roster. Throughput and sampled latency
+ * percentiles are reported per operation, run with {@code -prof gc} for allocation rate.
+ * The student information cache is disabled so every call reaches the database.
+ *
+ * <p>The largest roster holds 3 million grade rows in the in-memory database and
+ * {@code getGradebook} materializes all of them, hence the fixed heap. Heavier rosters,
+ * e.g. {@code -p gradesPerStudent=50}, need a matching {@code -jvmArgsAppend -Xmx}.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class StudentAndGradeServiceBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    private int students;
+
+    @Param({"1", "10"})
+    private int gradesPerStudent;
+
+    @Param({"false", "true"})
+    private boolean parallelReads;
+
+    private ConfigurableApplicationContext context;
+
+    private StudentAndGradeService studentService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkDatabase.start("service_benchmark",
+                "gradebook.parallel-reads.enabled=" + parallelReads);
+        BenchmarkDatabase.seed(context.getBean(JdbcTemplate.class), students, gradesPerStudent);
+        studentService = context.getBean(StudentAndGradeService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public GradebookCollegeStudent studentInformation() {
+        return studentService.studentInformation(ThreadLocalRandom.current().nextInt(1, students + 1));
+    }
+
+    @Benchmark
+    public Gradebook getGradebook() {
+        return studentService.getGradebook();
+    }
+
+    @Benchmark
+    public Gradebook getGradebookPage() {
+        int afterId = ThreadLocalRandom.current().nextInt(0, Math.max(1, students - 100));
+        return studentService.getGradebookAfter(afterId, 100);
+    }
+}
@@ -0,0 +1,62 @@
+package com.luv2code.springmvc.benchmark;
+
+import com.luv2code.springmvc.models.CollegeStudent;
+import com.luv2code.springmvc.models.GradebookCollegeStudent;
+import com.luv2code.springmvc.repository.StudentDao;
+import com.luv2code.springmvc.service.StudentAndGradeService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-student lookup latency as the tables grow. With the grade (student_id, subject)
+ * index and the unique email index both lookups should stay flat from 10k to 1M students.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class StudentLookupBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int students;
+
+    @Param({"3"})
+    private int gradesPerStudent;
+
+    private ConfigurableApplicationContext context;
+
+    private StudentAndGradeService studentService;
+
+    private StudentDao studentDao;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkDatabase.start("lookup_benchmark");
+        BenchmarkDatabase.seed(context.getBean(JdbcTemplate.class), students, gradesPerStudent);
+        studentService = context.getBean(StudentAndGradeService.class);
+        studentDao = context.getBean(StudentDao.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public GradebookCollegeStudent studentInformation() {
+        return studentService.studentInformation(ThreadLocalRandom.current().nextInt(1, students + 1));
+    }
+
+    @Benchmark
+    public Optional<CollegeStudent> findByEmailAddress() {
+        int id = ThreadLocalRandom.current().nextInt(1, students + 1);
+        return studentDao.findByEmailAddress("student" + id + "@luv2code_school.com");
+    }
+}
@@ -1,36 +1,67 @@
 package com.luv2code.springmvc.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.luv2code.springmvc.QueryCountConfiguration;
+import com.luv2code.springmvc.config.BinaryFormatConfiguration;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.luv2code.springmvc.models.CollegeStudent;
-import com.luv2code.springmvc.models.MathGrade;
-import com.luv2code.springmvc.repository.MathGradesDao;
+import com.luv2code.springmvc.models.SubjectGrade;
+import com.luv2code.springmvc.repository.GradeDao;
 import com.luv2code.springmvc.repository.StudentDao;
+import com.luv2code.springmvc.service.GradeLeaderboard;
+import com.luv2code.springmvc.service.GradeSummaryStore;
+import com.luv2code.springmvc.service.GradeWriteBuffer;
+import com.luv2code.springmvc.service.GradebookSnapshotService;
+import com.luv2code.springmvc.service.StudentAndGradeService;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.http.MediaType;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Optional;
 import java.util.Random;
 
 import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
+import static org.hamcrest.collection.IsIterableContainingInAnyOrder.containsInAnyOrder;
 import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
+//the service test covers sequential reads, the roster endpoints run with parallel reads
 @AutoConfigureMockMvc
-@SpringBootTest
+@SpringBootTest(properties = "gradebook.parallel-reads.enabled=true")
+@Import(QueryCountConfiguration.class)
 class GradebookControllerTest {
     private static final Random rnd = new Random();
 
@@ -50,11 +81,32 @@ class GradebookControllerTest {
     @Autowired
     private JdbcTemplate jdbc;
 
+    @Autowired
+    private QueryCountConfiguration.QueryCounter queryCounter;
+
     @Autowired
     private StudentDao studentDao;
 
     @Autowired
-    private MathGradesDao mathGradeDao;
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private GradeDao gradeDao;
+
+    @Autowired
+    private GradeSummaryStore gradeSummaryStore;
+
+    @Autowired
+    private GradeLeaderboard leaderboard;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private RequestMappingHandlerAdapter requestMappingHandlerAdapter;
+
+    @Autowired
+    private AsyncTaskExecutor applicationTaskExecutor;
 
     @Value("${sql.script.create.student}")
     private String sqlAddStudent;
@@ -99,8 +151,208 @@ class GradebookControllerTest {
         jdbc.execute(sqlAddHistoryGrade);
     }
 
+    @Nested
+    @TestPropertySource(properties = "gradebook.snapshot.enabled=true")
+    class SnapshotMode {
+
+        @Autowired
+        private MockMvc snapshotMockMvc;
+
+        @Autowired
+        private GradebookSnapshotService snapshotService;
+
+        @Autowired
+        private StudentAndGradeService snapshotStudentService;
+
+        @Test
+        void getStudentsServesSnapshotWithETag() throws Exception {
+            snapshotService.rebuild();
+            GradebookSnapshotService.Snapshot snapshot = awaitSnapshot(snapshotStudentService.getRosterVersion());
+            snapshotMockMvc.perform(MockMvcRequestBuilders.get("/"))
+                    .andExpectAll(
+                            status().isOk(),
+                            content().contentType(APPLICATION_JSON),
+                            header().string("ETag", snapshot.getETag()),
+                            header().string(GradebookController.ROSTER_VERSION_HEADER, String.valueOf(snapshot.getRosterVersion())),
+                            jsonPath("$", hasSize(1)),
+                            jsonPath("$[0].emailAddress", equalTo("eric.roby@luv2code_school.com")));
+            snapshotMockMvc.perform(MockMvcRequestBuilders.get("/").header("If-None-Match", snapshot.getETag()))
+                    .andExpectAll(
+                            status().isNotModified(),
+                            content().string(""));
+            snapshotMockMvc.perform(MockMvcRequestBuilders.get("/").param("afterId", "0"))
+                    .andExpectAll(
+                            status().isOk(),
+                            header().doesNotExist("ETag"));
+            snapshotMockMvc.perform(MockMvcRequestBuilders.get("/").accept(MediaType.APPLICATION_CBOR))
+                    .andExpectAll(
+                            status().isOk(),
+                            content().contentType(MediaType.APPLICATION_CBOR),
+                            header().doesNotExist("ETag"));
+        }
+
+        private GradebookSnapshotService.Snapshot awaitSnapshot(long rosterVersion) throws InterruptedException {
+            for (int attempt = 0; attempt < 50; attempt++) {
+                GradebookSnapshotService.Snapshot snapshot = snapshotService.current();
+                if (snapshot != null && snapshot.getRosterVersion() == rosterVersion) {
+                    return snapshot;
+                }
+                Thread.sleep(100);
+            }
+            throw new AssertionError("No snapshot of roster version " + rosterVersion);
+        }
+    }
+
+    @Nested
+    @TestPropertySource(properties = {"gradebook.write-behind.enabled=true", "gradebook.write-behind.batch-size=50"})
+    class WriteBehindMode {
+
+        @Autowired
+        private MockMvc writeBehindMockMvc;
+
+        @Autowired
+        private GradeWriteBuffer gradeWriteBuffer;
+
+        @Test
+        void createGradeIsAcceptedAndVisibleToItsStudent() throws Exception {
+            writeBehindMockMvc.perform(MockMvcRequestBuilders.post("/grades")
+                            .param("grade", "85.0")
+                            .param("gradeType", "math")
+                            .param("studentId", "1"))
+                    .andExpectAll(
+                            status().isAccepted(),
+                            content().string(""));
+            writeBehindMockMvc.perform(MockMvcRequestBuilders.get("/studentInformation/{id}", 1))
+                    .andExpectAll(
+                            status().isOk(),
+                            jsonPath("$.studentGrades.mathGradeResults", hasSize(2)));
+        }
+
+        @Test
+        void reactiveStudentInformationWaitsForQueuedGrades() throws Exception {
+            for (int i = 0; i < 120; i++) {
+                assertTrue(gradeWriteBuffer.submit(1, "history", 70));
+            }
+            MvcResult result = writeBehindMockMvc.perform(MockMvcRequestBuilders.get("/reactive/studentInformation/{id}", 1))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+            writeBehindMockMvc.perform(asyncDispatch(result))
+                    .andExpectAll(
+                            status().isOk(),
+                            jsonPath("$.studentGrades.historyGradeResults", hasSize(121)));
+        }
+
+        @Test
+        void createGradeStillValidatesBeforeQueueing() throws Exception {
+            writeBehindMockMvc.perform(MockMvcRequestBuilders.post("/grades")
+                            .param("grade", "101")
+                            .param("gradeType", "math")
+                            .param("studentId", "1"))
+                    .andExpect(status().isNotFound());
+            writeBehindMockMvc.perform(MockMvcRequestBuilders.post("/grades")
+                            .param("grade", "85.0")
+                            .param("gradeType", "math")
+                            .param("studentId", "2"))
+                    .andExpect(status().isNotFound());
+        }
+
+        @Test
+        void groupCommitWritesEveryQueuedGrade() {
+            for (int i = 0; i < 120; i++) {
+                assertTrue(gradeWriteBuffer.submit(1, "science", i % 100));
+            }
+            gradeWriteBuffer.awaitPending(1);
+            assertEquals(121, jdbc.queryForObject("select count(*) from grade where student_id = 1 and subject = 'science'", Integer.class));
+        }
+
+        @Test
+        void queuedGradesDoNotOutliveTheirStudent() throws Exception {
+            for (int i = 0; i < 120; i++) {
+                assertTrue(gradeWriteBuffer.submit(1, "math", 50));
+            }
+            writeBehindMockMvc.perform(MockMvcRequestBuilders.delete("/student/{id}", 1))
+                    .andExpect(status().isOk());
+            assertTrue(gradeWriteBuffer.submit(1, "math", 50), "the student check is the controller's");
+            gradeWriteBuffer.awaitPending(1);
+            assertEquals(0, jdbc.queryForObject("select count(*) from grade where student_id = 1", Integer.class));
+        }
+
+        @Test
+        @DirtiesContext
+        void shutdownDrainsTheQueue() throws InterruptedException {
+            for (int i = 0; i < 120; i++) {
+                assertTrue(gradeWriteBuffer.submit(1, "history", 50));
+            }
+            gradeWriteBuffer.stop();
+            assertFalse(gradeWriteBuffer.submit(1, "history", 50));
+            assertEquals(121, jdbc.queryForObject("select count(*) from grade where student_id = 1 and subject = 'history'", Integer.class));
+        }
+    }
+
+    //small enough for a second student to evict the first
+    @Nested
+    @TestPropertySource(properties = "spring.cache.caffeine.spec=maximumSize=1,recordStats")
+    class SmallCacheMode {
+
+        @Autowired
+        private MockMvc smallCacheMockMvc;
+
+        @Autowired
+        private MeterRegistry smallCacheMeterRegistry;
+
+        @Autowired
+        private CacheManager smallCacheManager;
+
+        @Test
+        void studentInformationCacheMetrics() throws Exception {
+            double hits = cacheGets("hit");
+            double misses = cacheGets("miss");
+            double evictions = cacheEvictions();
+
+            smallCacheMockMvc.perform(MockMvcRequestBuilders.get("/studentInformation/{id}", 1)).andExpect(status().isOk());
+            assertEquals(misses + 1, cacheGets("miss"));
+            assertEquals(hits, cacheGets("hit"));
+
+            smallCacheMockMvc.perform(MockMvcRequestBuilders.get("/studentInformation/{id}", 1)).andExpect(status().isOk());
+            assertEquals(misses + 1, cacheGets("miss"));
+            assertEquals(hits + 1, cacheGets("hit"));
+
+            collegeStudent.setFirstname("Chad");
+            collegeStudent.setLastname("Darby");
+            collegeStudent.setEmailAddress("chad@luv2code.com");
+            studentDao.save(collegeStudent);
+            smallCacheMockMvc.perform(MockMvcRequestBuilders.get("/studentInformation/{id}", collegeStudent.getId()))
+                    .andExpect(status().isOk());
+            ((Cache<?, ?>) smallCacheManager
+                    .getCache(StudentAndGradeService.STUDENT_INFORMATION_CACHE).getNativeCache()).cleanUp();
+            assertEquals(misses + 2, cacheGets("miss"));
+            assertEquals(evictions + 1, cacheEvictions());
+
+            smallCacheMockMvc.perform(MockMvcRequestBuilders.get("/actuator/metrics/cache.gets")
+                            .param("tag", "cache:studentInformation")
+                            .param("tag", "result:hit"))
+                    .andExpectAll(
+                            status().isOk(),
+                            jsonPath("$.measurements[0].value", equalTo(hits + 1)));
+        }
+
+        private double cacheGets(String result) {
+            return smallCacheMeterRegistry.get("cache.gets")
+                    .tags("cache", StudentAndGradeService.STUDENT_INFORMATION_CACHE, "result", result)
+                    .functionCounter().count();
+        }
+
+        private double cacheEvictions() {
+            return smallCacheMeterRegistry.get("cache.evictions")
+                    .tag("cache", StudentAndGradeService.STUDENT_INFORMATION_CACHE)
+                    .functionCounter().count();
+        }
+    }
+
     @AfterEach
     void tearDown() {
+        gradeSummaryStore.clear();
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
         jdbc.execute(sqlDeleteStudent);
         jdbc.execute(sqlDeleteMathGrade);
         jdbc.execute(sqlDeleteScienceGrade);
@@ -122,6 +374,54 @@ class GradebookControllerTest {
                 "Should have been saved.");
     }
 
+    @Test
+    void getStudentsPageHttpRequest() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            studentDao.save(new CollegeStudent("Chad", "Darby", "chad" + i + "@luv2code.com"));
+        }
+        mockMvc.perform(MockMvcRequestBuilders.get("/").param("page", "1").param("size", "3"))
+                .andExpectAll(
+                        status().isOk(),
+                        content().contentType(APPLICATION_JSON),
+                        jsonPath("$", hasSize(1)),
+                        jsonPath("$[0].emailAddress", equalTo("chad2@luv2code.com")));
+    }
+
+    @Test
+    void getStudentsAfterIdHttpRequest() throws Exception {
+        studentDao.save(new CollegeStudent("Chad", "Darby", "chad@luv2code.com"));
+        mockMvc.perform(MockMvcRequestBuilders.get("/").param("afterId", "1").param("size", "10"))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$", hasSize(1)),
+                        jsonPath("$[0].emailAddress", equalTo("chad@luv2code.com")));
+    }
+
+    @Test
+    void getStudentsInvalidPageSize() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/").param("page", "0").param("size", "0"))
+                .andExpectAll(
+                        status().isBadRequest(),
+                        jsonPath("$.status", equalTo(400)));
+    }
+
+    @Test
+    void streamStudentsHttpRequest() throws Exception {
+        for (int i = 0; i < 4; i++) {
+            studentDao.save(new CollegeStudent("Chad", "Darby", "chad" + i + "@luv2code.com"));
+        }
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/stream").param("size", "2"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$", hasSize(5)),
+                        jsonPath("$[0].firstname", equalTo("Eric")),
+                        jsonPath("$[0].studentGrades.mathGradeResults", hasSize(1)),
+                        jsonPath("$[4].emailAddress", equalTo("chad3@luv2code.com")));
+    }
+
     @Test
     void createStudentHttpRequest() throws Exception {
         collegeStudent.setFirstname("Chad");
@@ -138,6 +438,55 @@ class GradebookControllerTest {
         assertTrue(studentDao.findByEmailAddress("chad@luv2code.com").isPresent(), "Student should have been saved already.");
     }
 
+    @Test
+    void createStudentWithDuplicateEmailIsRejected() throws Exception {
+        collegeStudent.setFirstname("Chad");
+        collegeStudent.setLastname("Darby");
+        collegeStudent.setEmailAddress("eric.roby@luv2code_school.com");
+        mockMvc.perform(MockMvcRequestBuilders.post("/")
+                        .contentType(APPLICATION_JSON)
+                        .content(mapper.writeValueAsString(collegeStudent)))
+                .andExpect(status().isBadRequest());
+        assertEquals(1, studentDao.count());
+    }
+
+    @Test
+    void createStudentDeltaHttpRequest() throws Exception {
+        collegeStudent.setFirstname("Chad");
+        collegeStudent.setLastname("Darby");
+        collegeStudent.setEmailAddress("chad@luv2code.com");
+        MvcResult roster = mockMvc.perform(MockMvcRequestBuilders.get("/"))
+                .andExpect(header().exists(GradebookController.ROSTER_VERSION_HEADER))
+                .andReturn();
+        long rosterVersion = Long.parseLong(roster.getResponse().getHeader(GradebookController.ROSTER_VERSION_HEADER));
+        mockMvc.perform(MockMvcRequestBuilders.post("/")
+                        .param("delta", "true")
+                        .contentType(APPLICATION_JSON)
+                        .content(mapper.writeValueAsString(collegeStudent)))
+                .andExpectAll(
+                        status().isOk(),
+                        header().string(GradebookController.ROSTER_VERSION_HEADER, String.valueOf(rosterVersion + 1)),
+                        jsonPath("$.change", equalTo("created")),
+                        jsonPath("$.rosterVersion").value(rosterVersion + 1),
+                        jsonPath("$.student.emailAddress", equalTo("chad@luv2code.com")),
+                        jsonPath("$.student.studentGrades.mathGradeResults", hasSize(0)));
+        assertTrue(studentDao.findByEmailAddress("chad@luv2code.com").isPresent());
+    }
+
+    @Test
+    void deleteStudentDeltaHttpRequest() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.delete("/student/{id}", 1).param("delta", "true"))
+                .andExpectAll(
+                        status().isOk(),
+                        header().exists(GradebookController.ROSTER_VERSION_HEADER),
+                        jsonPath("$.change", equalTo("deleted")),
+                        jsonPath("$.student.id", equalTo(1)),
+                        jsonPath("$.student.studentGrades.mathGradeResults", hasSize(1)));
+        assertFalse(studentDao.existsById(1));
+        mockMvc.perform(MockMvcRequestBuilders.delete("/student/{id}", 1).param("delta", "true"))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     void deleteNonExistingStudentRequestTest() throws Exception {
         assertFalse(studentDao.existsById(2));
@@ -162,6 +511,19 @@ class GradebookControllerTest {
         assertFalse(studentDao.existsById(student.getId()));
     }
 
+    @Test
+    void deleteStudentsHttpRequest() throws Exception {
+        MvcResult roster = mockMvc.perform(MockMvcRequestBuilders.get("/")).andReturn();
+        long rosterVersion = Long.parseLong(roster.getResponse().getHeader(GradebookController.ROSTER_VERSION_HEADER));
+        mockMvc.perform(MockMvcRequestBuilders.delete("/students").param("ids", "1", "2"))
+                .andExpectAll(
+                        status().isOk(),
+                        header().string(GradebookController.ROSTER_VERSION_HEADER, String.valueOf(rosterVersion + 1)),
+                        jsonPath("$.deleted", equalTo(1)));
+        assertFalse(studentDao.existsById(1));
+        assertFalse(subjectGrades(1, "math").iterator().hasNext());
+    }
+
     @Test
     void studentInformationNonExistingStudent() throws Exception {
         assertFalse(studentDao.existsById(2));
@@ -186,6 +548,161 @@ class GradebookControllerTest {
                         jsonPath("$.emailAddress", equalTo("alihmzyv@gmail.com")));
     }
 
+    @Test
+    void studentsInformationBatchHttpRequest() throws Exception {
+        collegeStudent.setFirstname("Ali");
+        collegeStudent.setLastname("Hamzayev");
+        collegeStudent.setEmailAddress("alihmzyv@gmail.com");
+        studentDao.save(collegeStudent);
+        mockMvc.perform(MockMvcRequestBuilders.post("/studentInformation/batch")
+                        .contentType(APPLICATION_JSON)
+                        .content("[" + collegeStudent.getId() + ", 1, 999]"))
+                .andExpectAll(
+                        status().isOk(),
+                        content().contentType(APPLICATION_JSON),
+                        jsonPath("$.*", hasSize(2)),
+                        jsonPath("$['1'].firstname", equalTo("Eric")),
+                        jsonPath("$['1'].studentGrades.mathGradeResults", hasSize(1)),
+                        jsonPath("$['" + collegeStudent.getId() + "'].emailAddress", equalTo("alihmzyv@gmail.com")));
+    }
+
+    @Test
+    void leaderboardHttpRequests() throws Exception {
+        leaderboard.rebuild();
+        mockMvc.perform(MockMvcRequestBuilders.post("/grades")
+                        .param("grade", "80.0")
+                        .param("gradeType", "math")
+                        .param("studentId", "1"))
+                .andExpect(status().isOk());
+        mockMvc.perform(MockMvcRequestBuilders.get("/leaderboard/{gradeType}", "math"))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$", hasSize(1)),
+                        jsonPath("$[0].studentId", equalTo(1)),
+                        jsonPath("$[0].average", equalTo(90.0)),
+                        jsonPath("$[0].rank", equalTo(1)));
+        mockMvc.perform(MockMvcRequestBuilders.get("/leaderboard/{gradeType}/students/{id}", "science", 1))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.percentile", equalTo(50.0)),
+                        jsonPath("$.rankedStudents", equalTo(1)));
+        mockMvc.perform(MockMvcRequestBuilders.get("/leaderboard/{gradeType}/students/{id}", "math", 2))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(MockMvcRequestBuilders.get("/leaderboard/{gradeType}", "gibberish"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getStatisticsHttpRequest() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/statistics"))
+                .andExpectAll(
+                        status().isOk(),
+                        content().contentType(APPLICATION_JSON),
+                        jsonPath("$.math.count", equalTo(1)),
+                        jsonPath("$.math.median", equalTo(100.0)),
+                        jsonPath("$.science.histogram[9]", equalTo(1)),
+                        jsonPath("$.history.standardDeviation", equalTo(0.0)));
+    }
+
+    @Test
+    void binaryFormatsByAcceptHeader() throws Exception {
+        JsonNode json = mapper.readTree(mockMvc.perform(MockMvcRequestBuilders.get("/studentInformation/{id}", 1))
+                .andReturn().getResponse().getContentAsByteArray());
+
+        MvcResult cbor = mockMvc.perform(MockMvcRequestBuilders.get("/studentInformation/{id}", 1)
+                        .accept(MediaType.APPLICATION_CBOR))
+                .andExpectAll(
+                        status().isOk(),
+                        content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn();
+        assertEquals(json, new CBORMapper().readTree(cbor.getResponse().getContentAsByteArray()));
+
+        MvcResult smile = mockMvc.perform(MockMvcRequestBuilders.get("/")
+                        .accept(BinaryFormatConfiguration.APPLICATION_SMILE))
+                .andExpectAll(
+                        status().isOk(),
+                        content().contentType(BinaryFormatConfiguration.APPLICATION_SMILE))
+                .andReturn();
+        JsonNode roster = new SmileMapper().readTree(smile.getResponse().getContentAsByteArray());
+        assertEquals(1, roster.size());
+        assertEquals(json, roster.get(0));
+    }
+
+    @Test
+    void getCompactStudentsHttpRequest() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/compact"))
+                .andExpectAll(
+                        status().isOk(),
+                        content().contentType(APPLICATION_JSON),
+                        header().exists(GradebookController.ROSTER_VERSION_HEADER),
+                        jsonPath("$", hasSize(1)),
+                        jsonPath("$[0].emailAddress", equalTo("eric.roby@luv2code_school.com")),
+                        jsonPath("$[0].math.ids[0]", equalTo(1)),
+                        jsonPath("$[0].math.grades[0]", equalTo(100.0)),
+                        jsonPath("$[0].math.average", equalTo(100.0)),
+                        jsonPath("$[0].history.grades", hasSize(1)));
+    }
+
+    @Test
+    void reactiveStudentsHttpRequest() throws Exception {
+        collegeStudent.setFirstname("Chad");
+        collegeStudent.setLastname("Darby");
+        collegeStudent.setEmailAddress("chad@luv2code.com");
+        studentDao.save(collegeStudent);
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/reactive/").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String[] lines = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString().split("\n");
+        assertEquals(2, lines.length);
+        JsonNode first = mapper.readTree(lines[0]);
+        assertEquals(1, first.get("id").asInt());
+        assertEquals(1, first.at("/studentGrades/mathGradeResults").size());
+        assertEquals(1, first.at("/studentGrades/historyGradeResults").size());
+        assertEquals("chad@luv2code.com", mapper.readTree(lines[1]).get("emailAddress").asText());
+
+        result = mockMvc.perform(MockMvcRequestBuilders.get("/reactive/").accept(APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpectAll(
+                        status().isOk(),
+                        content().contentTypeCompatibleWith(APPLICATION_JSON),
+                        jsonPath("$", hasSize(2)),
+                        jsonPath("$[1].emailAddress", equalTo("chad@luv2code.com")));
+    }
+
+    @Test
+    void reactiveRosterLeavesMvcAsyncToBootsExecutor() {
+        assertSame(applicationTaskExecutor, ReflectionTestUtils.getField(requestMappingHandlerAdapter, "taskExecutor"),
+                "/stream and other async requests must not queue behind the reactive write threads");
+    }
+
+    @Test
+    void reactiveStudentInformationHttpRequest() throws Exception {
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/reactive/studentInformation/{id}", 1))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.emailAddress", equalTo("eric.roby@luv2code_school.com")),
+                        jsonPath("$.studentGrades.mathGradeResults", hasSize(1)),
+                        jsonPath("$.studentGrades.scienceGradeResults", hasSize(1)));
+        assertTrue(cacheManager.getCache(StudentAndGradeService.STUDENT_INFORMATION_CACHE).get(1) != null,
+                "the reactive read shares the studentInformation cache");
+
+        result = mockMvc.perform(MockMvcRequestBuilders.get("/reactive/studentInformation/{id}", 2))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpectAll(
+                        status().isNotFound(),
+                        jsonPath("$.message", equalTo("Student or Grade was not found")));
+    }
+
     @Test
     void createGradeNonExistingStudent() throws Exception {
         assertFalse(studentDao.existsById(2));
@@ -200,6 +717,90 @@ class GradebookControllerTest {
                         jsonPath("$.message", equalTo("Student or Grade was not found")));
     }
 
+    @Test
+    void createGradeRecordsMetrics() throws Exception {
+        double mathCalls = meterRegistry.find("gradebook.service")
+                .tags("method", "createGrade", "gradeType", "math", "outcome", "SUCCESS").timers()
+                .stream().mapToLong(Timer::count).sum();
+        mockMvc.perform(MockMvcRequestBuilders.post("/grades")
+                        .contentType(MediaType.MULTIPART_FORM_DATA)
+                        .param("grade", "85.0")
+                        .param("gradeType", "math")
+                        .param("studentId", "1"))
+                .andExpect(status().isOk());
+        mockMvc.perform(MockMvcRequestBuilders.post("/grades")
+                        .contentType(MediaType.MULTIPART_FORM_DATA)
+                        .param("grade", "85.0")
+                        .param("gradeType", "gibberish")
+                        .param("studentId", "1"))
+                .andExpect(status().isNotFound());
+
+        assertEquals(mathCalls + 1, meterRegistry.get("gradebook.service")
+                .tags("method", "createGrade", "gradeType", "math", "outcome", "SUCCESS").timers()
+                .stream().mapToLong(Timer::count).sum());
+        assertTrue(meterRegistry.get("http.server.requests")
+                .tags("uri", "/grades", "gradeType", "other", "status", "404").timer().count() > 0);
+        assertTrue(meterRegistry.get("gradebook.db.statements").tag("uri", "/grades").summary().totalAmount() > 0);
+    }
+
+    @Test
+    void requestStatementsCountJdbcParallelAndReactiveQueries() throws Exception {
+        double statistics = recordedStatements("/statistics");
+        mockMvc.perform(MockMvcRequestBuilders.get("/statistics"))
+                .andExpect(status().isOk());
+        assertEquals(statistics + 3, recordedStatements("/statistics"), "JdbcTemplate: aggregates, histogram, percentiles");
+
+        double roster = recordedStatements("/");
+        mockMvc.perform(MockMvcRequestBuilders.get("/"))
+                .andExpect(status().isOk());
+        assertEquals(roster + 2, recordedStatements("/"), "students, possibly on the parallel read pool, and grades");
+
+        double reactive = recordedStatements("/reactive/studentInformation/{id}");
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/reactive/studentInformation/{id}", 1))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk());
+        assertEquals(reactive + 1, recordedStatements("/reactive/studentInformation/{id}"), "R2DBC");
+    }
+
+    private double recordedStatements(String uri) {
+        DistributionSummary summary = meterRegistry.find("gradebook.db.statements").tag("uri", uri).summary();
+        return summary != null ? summary.totalAmount() : 0;
+    }
+
+    @Test
+    void getStudentsRecordsRowsMaterialized() throws Exception {
+        double students = meterRegistry.counter(StudentAndGradeService.ROWS_MATERIALIZED_METRIC, "table", "student").count();
+        double grades = meterRegistry.counter(StudentAndGradeService.ROWS_MATERIALIZED_METRIC, "table", "grade").count();
+        mockMvc.perform(MockMvcRequestBuilders.get("/"))
+                .andExpect(status().isOk());
+        assertEquals(students + 1, meterRegistry.counter(StudentAndGradeService.ROWS_MATERIALIZED_METRIC, "table", "student").count());
+        assertEquals(grades + 3, meterRegistry.counter(StudentAndGradeService.ROWS_MATERIALIZED_METRIC, "table", "grade").count());
+    }
+
+    @Test
+    void endpointStatementBudgets() throws Exception {
+        queryCounter.reset();
+        mockMvc.perform(MockMvcRequestBuilders.get("/studentInformation/{id}", 1))
+                .andExpect(status().isOk());
+        assertEquals(1, queryCounter.statements(), "GET /studentInformation/{id}");
+
+        queryCounter.reset();
+        mockMvc.perform(MockMvcRequestBuilders.post("/grades")
+                        .contentType(MediaType.MULTIPART_FORM_DATA)
+                        .param("grade", "85.0")
+                        .param("gradeType", "math")
+                        .param("studentId", "1"))
+                .andExpect(status().isOk());
+        assertEquals(3, queryCounter.statements(), "POST /grades: student check, insert, reload");
+
+        queryCounter.reset();
+        mockMvc.perform(MockMvcRequestBuilders.get("/"))
+                .andExpect(status().isOk());
+        assertEquals(2, queryCounter.statements(), "GET /: students and grades");
+    }
+
     @Test
     void createGradeNotInRange() throws Exception {
         createGradeReq.setParameter("grade", String.valueOf(rnd.nextDouble(100.1, 1000)));
@@ -226,12 +827,73 @@ class GradebookControllerTest {
                         jsonPath("$.message", equalTo("Student or Grade was not found")));
     }
 
+    @Test
+    void createGradesBulkJson() throws Exception {
+        String body = "[" +
+                "{\"studentId\":1,\"gradeType\":\"math\",\"grade\":70.5}," +
+                "{\"studentId\":1,\"gradeType\":\"science\",\"grade\":80}," +
+                "{\"studentId\":2,\"gradeType\":\"math\",\"grade\":80}," +
+                "{\"studentId\":1,\"gradeType\":\"literature\",\"grade\":80}," +
+                "{\"studentId\":1,\"gradeType\":\"history\",\"grade\":101}," +
+                "{\"studentId\":\"one\",\"gradeType\":\"history\",\"grade\":50}," +
+                "{\"studentId\":1,\"gradeType\":\"math\",\"grade\":90}]";
+        mockMvc.perform(MockMvcRequestBuilders.post("/grades/bulk")
+                        .contentType(APPLICATION_JSON)
+                        .content(body))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.accepted", equalTo(3)),
+                        jsonPath("$.rejected", hasSize(4)),
+                        jsonPath("$.rejected[*].row", containsInAnyOrder(3, 4, 5, 6)));
+        Iterator<SubjectGrade> iterator = subjectGrades(1, "math").iterator();
+        int mathGrades = 0;
+        while (iterator.hasNext()) {
+            iterator.next();
+            mathGrades++;
+        }
+        assertEquals(3, mathGrades);
+    }
+
+    @Test
+    void createGradesBulkCsv() throws Exception {
+        String body = "studentId,gradeType,grade\n" +
+                "1,math,70.5\n" +
+                "1,history,abc\n" +
+                "1,science,88\n";
+        mockMvc.perform(MockMvcRequestBuilders.post("/grades/bulk")
+                        .contentType("text/csv")
+                        .content(body))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.accepted", equalTo(2)),
+                        jsonPath("$.rejected", hasSize(1)),
+                        jsonPath("$.rejected[0].row", equalTo(3)),
+                        jsonPath("$.rejected[0].reason", equalTo("Malformed row")));
+    }
+
+    @Test
+    void createGradesBulkCsvRejectsNaN() throws Exception {
+        String body = "studentId,gradeType,grade\n" +
+                "1,math,NaN\n" +
+                "1,science,88\n";
+        mockMvc.perform(MockMvcRequestBuilders.post("/grades/bulk")
+                        .contentType("text/csv")
+                        .content(body))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.accepted", equalTo(1)),
+                        jsonPath("$.rejected", hasSize(1)),
+                        jsonPath("$.rejected[0].row", equalTo(2)),
+                        jsonPath("$.rejected[0].reason", equalTo("Grade must be between 0 and 100")));
+        assertEquals(1, jdbc.queryForObject("select count(*) from grade where subject = 'math'", Integer.class));
+    }
+
     @Test
     void createGradeValid() throws Exception {
         Optional<CollegeStudent> studentOpt = studentDao.findById(1);
         assertTrue(studentOpt.isPresent());
         CollegeStudent student = studentOpt.get();
-        Iterator<MathGrade> iterator = mathGradeDao.findGradeByStudentId(student.getId()).iterator();
+        Iterator<SubjectGrade> iterator = subjectGrades(student.getId(), "math").iterator();
         iterator.next();
         assertFalse(iterator.hasNext());
         mockMvc.perform(MockMvcRequestBuilders.post("/grades")
@@ -244,7 +906,19 @@ class GradebookControllerTest {
                         jsonPath("$.firstname", equalTo(student.getFirstname())),
                         jsonPath("$.lastname", equalTo(student.getLastname())),
                         jsonPath("$.emailAddress", equalTo(student.getEmailAddress())),
-                        jsonPath("$.studentGrades.mathGradeResults", hasSize(2)));
-        assertTrue(mathGradeDao.findGradeByStudentId(student.getId()).iterator().hasNext());
+                        jsonPath("$.studentGrades.mathGradeResults", hasSize(2)),
+                        jsonPath("$.studentGrades.mathGradeSummary.count", equalTo(2)),
+                        jsonPath("$.studentGrades.mathGradeSummary.average", equalTo(95.0)));
+        assertTrue(subjectGrades(student.getId(), "math").iterator().hasNext());
+    }
+
+    private List<SubjectGrade> subjectGrades(int studentId, String subject) {
+        List<SubjectGrade> grades = new ArrayList<>();
+        gradeDao.findGradeByStudentId(studentId).forEach(grade -> {
+            if (grade.getSubject().equals(subject)) {
+                grades.add(grade);
+            }
+        });
+        return grades;
     }
 }
\ No newline at end of file
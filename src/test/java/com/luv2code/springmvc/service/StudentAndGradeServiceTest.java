@@ -1,9 +1,8 @@
 package com.luv2code.springmvc.service;
 
+import com.luv2code.springmvc.QueryCountConfiguration;
 import com.luv2code.springmvc.models.*;
-import com.luv2code.springmvc.repository.HistoryGradesDao;
-import com.luv2code.springmvc.repository.MathGradesDao;
-import com.luv2code.springmvc.repository.ScienceGradesDao;
+import com.luv2code.springmvc.repository.GradeDao;
 import com.luv2code.springmvc.repository.StudentDao;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -11,37 +10,72 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Import;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.jdbc.Sql;
 import org.springframework.test.context.jdbc.SqlConfig;
 import org.springframework.test.context.jdbc.SqlGroup;
 
+import java.nio.charset.StandardCharsets;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.spy;
 
 @TestPropertySource("/application-test.properties")
 @SpringBootTest
+@Import(QueryCountConfiguration.class)
 public class StudentAndGradeServiceTest {
 
     @Autowired
     private JdbcTemplate jdbc;
 
+    @Autowired
+    private QueryCountConfiguration.QueryCounter queryCounter;
+
     @Autowired
     private StudentDao studentDao;
 
     @Autowired
-    private MathGradesDao mathGradeDao;
+    private GradeDao gradeDao;
 
     @Autowired
-    private ScienceGradesDao scienceGradeDao;
+    private StudentAndGradeService studentService;
 
     @Autowired
-    private HistoryGradesDao historyGradeDao;
+    private GradeSummaryStore gradeSummaryStore;
 
     @Autowired
-    private StudentAndGradeService studentService;
+    private CacheManager cacheManager;
+
+    @Autowired
+    private GradebookSnapshotService gradebookSnapshotService;
+
+    @Autowired
+    private CompactGradebookService compactGradebookService;
+
+    @Autowired
+    private GradeLeaderboard leaderboard;
+
+    @Autowired
+    private GradeStatisticsService gradeStatisticsService;
 
     @Value("${sql.script.create.student}")
     private String sqlAddStudent;
@@ -100,9 +134,9 @@ public class StudentAndGradeServiceTest {
     public void deleteStudentService() {
 
         Optional<CollegeStudent> deletedCollegeStudent = studentDao.findById(1);
-        Optional<MathGrade> deletedMathGrade = mathGradeDao.findById(1);
-        Optional<ScienceGrade> deletedScienceGrade = scienceGradeDao.findById(1);
-        Optional<HistoryGrade> deletedHistoryGrade = historyGradeDao.findById(1);
+        Optional<SubjectGrade> deletedMathGrade = gradeDao.findById(1);
+        Optional<SubjectGrade> deletedScienceGrade = gradeDao.findById(2);
+        Optional<SubjectGrade> deletedHistoryGrade = gradeDao.findById(3);
 
         assertTrue(deletedCollegeStudent.isPresent(), "return true");
         assertTrue(deletedMathGrade.isPresent(), "return true");
@@ -112,9 +146,9 @@ public class StudentAndGradeServiceTest {
         studentService.deleteStudent(1);
 
         deletedCollegeStudent = studentDao.findById(1);
-        deletedMathGrade = mathGradeDao.findById(1);
-        deletedScienceGrade = scienceGradeDao.findById(1);
-        deletedHistoryGrade = historyGradeDao.findById(1);
+        deletedMathGrade = gradeDao.findById(1);
+        deletedScienceGrade = gradeDao.findById(2);
+        deletedHistoryGrade = gradeDao.findById(3);
 
         assertFalse(deletedCollegeStudent.isPresent(), "return false");
         assertFalse(deletedMathGrade.isPresent(), "return false");
@@ -142,16 +176,144 @@ public class StudentAndGradeServiceTest {
 
     }
 
+    @Test
+    public void studentInformationServiceMapsGradesBySubject() {
+        jdbc.execute("insert into grade(id,student_id,subject,grade) values (4,1,'math',75.50)");
+
+        StudentGrades studentGrades = studentService.studentInformation(1).getStudentGrades();
+
+        assertEquals(2, studentGrades.getMathGradeResults().size());
+        assertEquals(1, studentGrades.getScienceGradeResults().size());
+        assertEquals(1, studentGrades.getHistoryGradeResults().size());
+        assertEquals(175.50, studentGrades.addGradeResultsForSingleClass(studentGrades.getMathGradeResults()));
+        assertTrue(studentGrades.getScienceGradeResults().get(0) instanceof ScienceGrade);
+        assertEquals(3, studentGrades.getHistoryGradeResults().get(0).getId());
+        assertEquals(1, studentGrades.getHistoryGradeResults().get(0).getStudentId());
+    }
+
+    @Test
+    public void gradeSummariesFollowWrites() {
+        StudentGrades studentGrades = studentService.studentInformation(1).getStudentGrades();
+        assertEquals(1, studentGrades.getMathGradeSummary().getCount());
+        assertEquals(100.0, studentGrades.getMathGradeSummary().getAverage());
+
+        studentService.createGrade(80.50, 1, "math");
+        studentService.createGrade(70.00, 1, "math");
+
+        SubjectGradeSummary math = studentService.studentInformation(1).getStudentGrades().getMathGradeSummary();
+        assertEquals(3, math.getCount());
+        assertEquals(250.50, math.getSum());
+        assertEquals(83.5, math.getAverage());
+        assertEquals(70.0, math.getMin());
+        assertEquals(100.0, math.getMax());
+
+        int gradeId = subjectGrades(1, "math").iterator().next().getId();
+        assertEquals(1, studentService.deleteGrade(gradeId, "math"));
+        math = studentService.studentInformation(1).getStudentGrades().getMathGradeSummary();
+        assertEquals(2, math.getCount());
+        assertEquals(75.25, math.getAverage());
+        assertEquals(70.0, math.getMin());
+        assertEquals(80.5, math.getMax());
+
+        long generation = gradeSummaryStore.generation(1);
+        studentService.deleteStudent(1);
+        assertNull(gradeSummaryStore.get(1));
+        assertNotEquals(generation, gradeSummaryStore.generation(1), "a reader started before the delete cannot publish");
+    }
+
+    @Test
+    public void gradeSummariesDisagreeingWithTheRowsAreRecomputed() {
+        assertEquals(1, studentService.studentInformation(1).getStudentGrades().getMathGradeSummary().getCount());
+        assertNotNull(gradeSummaryStore.get(1));
+
+        //a grade the summary store has not seen, like one committed between the reads
+        jdbc.execute("insert into grade(student_id,subject,grade) values (1,'math',50.00)");
+        studentService.evictStudentInformation(1);
+
+        StudentGrades studentGrades = studentService.studentInformation(1).getStudentGrades();
+        assertEquals(2, studentGrades.getMathGradeResults().size());
+        assertEquals(2, studentGrades.getMathGradeSummary().getCount());
+        assertEquals(75.0, studentGrades.getMathGradeSummary().getAverage());
+        assertEquals(2, gradeSummaryStore.get(1)[0].getCount(), "the recomputed summaries replace the stale ones");
+    }
+
+    @Test
+    public void studentInformationIsCachedUntilAWrite() {
+        GradebookCollegeStudent first = studentService.studentInformation(1);
+        assertSame(first, studentService.studentInformation(1), "second read is served from the cache");
+
+        studentService.createGrade(50.0, 1, "science");
+        GradebookCollegeStudent afterCreate = studentService.studentInformation(1);
+        assertNotSame(first, afterCreate);
+        assertEquals(2, afterCreate.getStudentGrades().getScienceGradeResults().size());
+
+        int gradeId = afterCreate.getStudentGrades().getScienceGradeResults().get(1).getId();
+        studentService.deleteGrade(gradeId, "science");
+        GradebookCollegeStudent afterDelete = studentService.studentInformation(1);
+        assertEquals(1, afterDelete.getStudentGrades().getScienceGradeResults().size());
+
+        studentService.deleteStudent(1);
+        assertNull(studentService.studentInformation(1));
+    }
+
+    @Test
+    public void studentInformationLoadedBeforeAWriteIsNotCached() {
+        //a slow reader takes the version and loads the student, then a grade is written
+        long version = studentService.studentInformationVersion(1);
+        GradebookCollegeStudent stale = studentService.studentInformation(1);
+        studentService.createGrade(50.0, 1, "science");
+
+        //the reader's put lands after the write's eviction
+        studentService.cacheIfCurrent(1, version, stale);
+
+        GradebookCollegeStudent current = studentService.studentInformation(1);
+        assertNotSame(stale, current);
+        assertEquals(2, current.getStudentGrades().getScienceGradeResults().size());
+    }
+
+    @Test
+    public void batchStudentInformationLoadedBeforeAWriteIsNotCached() throws Exception {
+        ExecutorService writer = Executors.newSingleThreadExecutor();
+        try {
+            for (int i = 0; i < 50; i++) {
+                Future<?> write = writer.submit(() -> studentService.createGrade(50.0, 1, "history"));
+                studentService.studentsInformation(List.of(1));
+                write.get();
+                assertEquals(i + 2, studentService.studentsInformation(List.of(1)).get(1)
+                        .getStudentGrades().getHistoryGradeResults().size(), "stale student cached");
+            }
+        } finally {
+            writer.shutdown();
+        }
+    }
+
+    @Test
+    public void studentInformationServiceWithoutGrades() {
+        jdbc.execute(sqlDeleteMathGrade);
+        jdbc.execute(sqlDeleteScienceGrade);
+        jdbc.execute(sqlDeleteHistoryGrade);
+
+        GradebookCollegeStudent student = studentService.studentInformation(1);
+
+        assertEquals("Eric", student.getFirstname());
+        assertTrue(student.getStudentGrades().getMathGradeResults().isEmpty());
+        assertTrue(student.getStudentGrades().getScienceGradeResults().isEmpty());
+        assertTrue(student.getStudentGrades().getHistoryGradeResults().isEmpty());
+        assertEquals(0, student.getStudentGrades().getMathGradeSummary().getCount());
+        assertNull(student.getStudentGrades().getMathGradeSummary().getAverage());
+        assertNull(studentService.studentInformation(0), "No student should have 0 id : return null");
+    }
+
     @Test
     public void isGradeNullCheck() {
 
         assertTrue(studentService.checkIfGradeIsNull(1, "math"),
                 "@BeforeTransaction creates student : return true");
 
-        assertTrue(studentService.checkIfGradeIsNull(1, "science"),
+        assertTrue(studentService.checkIfGradeIsNull(2, "science"),
                 "@BeforeTransaction creates student : return true");
 
-        assertTrue(studentService.checkIfGradeIsNull(1, "history"),
+        assertTrue(studentService.checkIfGradeIsNull(3, "history"),
                 "@BeforeTransaction creates student : return true");
 
         assertFalse(studentService.checkIfGradeIsNull(0, "science"),
@@ -159,6 +321,9 @@ public class StudentAndGradeServiceTest {
 
         assertFalse(studentService.checkIfGradeIsNull(0, "Literature"),
                 "No student should have 0 id : return false");
+
+        assertFalse(studentService.checkIfGradeIsNull(1, "science"),
+                "Grade 1 is a math grade : return false");
     }
 
     @Test
@@ -167,10 +332,10 @@ public class StudentAndGradeServiceTest {
         assertEquals(1, studentService.deleteGrade(1, "math"),
                 "@BeforeTransaction creates student : return true");
 
-        assertEquals(1, studentService.deleteGrade(1, "science"),
+        assertEquals(1, studentService.deleteGrade(2, "science"),
                 "@BeforeTransaction creates student : return true");
 
-        assertEquals(1, studentService.deleteGrade(1, "history"),
+        assertEquals(1, studentService.deleteGrade(3, "history"),
                 "@BeforeTransaction creates student : return true");
 
         assertEquals(0, studentService.deleteGrade(0, "science"),
@@ -178,21 +343,29 @@ public class StudentAndGradeServiceTest {
 
         assertEquals(0, studentService.deleteGrade(1, "literature"),
                 "No student should have 0 id : return false");
+
+        assertEquals(0, studentService.deleteGrade(4, "history"),
+                "No grade should have 4 id : return false");
     }
 
     @Test
     public void createGradeService() {
 
-        studentService.createGrade(80.50, 2, "math");
-        studentService.createGrade(80.50, 2, "science");
-        studentService.createGrade(80.50, 2, "history");
-        studentService.createGrade(80.50, 2, "literature");
+        jdbc.execute(sqlDeleteMathGrade);
+        jdbc.execute(sqlDeleteScienceGrade);
+        jdbc.execute(sqlDeleteHistoryGrade);
+
+        assertTrue(studentService.createGrade(80.50, 1, "math"));
+        assertTrue(studentService.createGrade(80.50, 1, "science"));
+        assertTrue(studentService.createGrade(80.50, 1, "history"));
+        assertFalse(studentService.createGrade(80.50, 1, "literature"));
+        assertFalse(studentService.createGrade(80.50, 2, "math"), "no student 2, nothing written");
 
-        Iterable<MathGrade> mathGrades  = mathGradeDao.findGradeByStudentId(2);
+        Iterable<SubjectGrade> mathGrades  = subjectGrades(1, "math");
 
-        Iterable<ScienceGrade> scienceGrades  = scienceGradeDao.findGradeByStudentId(2);
+        Iterable<SubjectGrade> scienceGrades  = subjectGrades(1, "science");
 
-        Iterable<HistoryGrade> historyGrades  = historyGradeDao.findGradeByStudentId(2);
+        Iterable<SubjectGrade> historyGrades  = subjectGrades(1, "history");
 
         assertTrue(mathGrades.iterator().hasNext(),
                 "Student Service creates the grade: return true");
@@ -203,6 +376,44 @@ public class StudentAndGradeServiceTest {
 
     }
 
+    @SqlGroup({ @Sql(scripts = "/insertData.sql", config = @SqlConfig(commentPrefix = "`")),
+            @Sql("/overRideData.sql"),
+            @Sql("/insertGrade.sql")})
+    @Test
+    public void deleteStudentsService() {
+
+        assertEquals(2, studentService.deleteStudents(List.of(11, 12, 99)), "only existing students are counted");
+
+        assertFalse(studentDao.existsById(11));
+        assertFalse(studentDao.existsById(12));
+        assertTrue(studentDao.existsById(13));
+        assertFalse(subjectGrades(11, "math").iterator().hasNext());
+        assertFalse(subjectGrades(12, "science").iterator().hasNext());
+        assertFalse(subjectGrades(12, "history").iterator().hasNext());
+        assertTrue(subjectGrades(13, "math").iterator().hasNext());
+        assertNull(studentService.studentInformation(11));
+    }
+
+    @Test
+    public void rosterVersionStartsFromTheBootTime() {
+        long rosterVersion = studentService.getRosterVersion();
+        long oneHourAgo = System.currentTimeMillis() - 3_600_000;
+        assertTrue(rosterVersion > oneHourAgo * 1000, "a restart must not reset the version below earlier ones");
+
+        studentService.createStudent("Chad", "Darby", "chad.darby@luv2code_school.com");
+        assertEquals(rosterVersion + 1, studentService.getRosterVersion());
+    }
+
+    @Test
+    public void deleteStudentsServiceWithoutMatches() {
+
+        long rosterVersion = studentService.getRosterVersion();
+
+        assertEquals(0, studentService.deleteStudents(List.of(98, 99)));
+        assertEquals(0, studentService.deleteStudents(List.of()));
+        assertEquals(rosterVersion, studentService.getRosterVersion(), "nothing deleted, version unchanged");
+    }
+
     @SqlGroup({ @Sql(scripts = "/insertData.sql", config = @SqlConfig(commentPrefix = "`")),
             @Sql("/overRideData.sql"),
             @Sql("/insertGrade.sql")})
@@ -225,9 +436,386 @@ public class StudentAndGradeServiceTest {
         assertNotNull(gradebookTest.getStudents().get(0).getStudentGrades().getMathGradeResults());
     }
 
+    @SqlGroup({ @Sql(scripts = "/insertData.sql", config = @SqlConfig(commentPrefix = "`")),
+            @Sql("/overRideData.sql"),
+            @Sql("/insertGrade.sql")})
+    @Test
+    public void getGradebookServiceGroupsGradesByStudent() {
+
+        Gradebook gradebook = studentService.getGradebook();
+
+        assertEquals(5, gradebook.getStudents().size());
+
+        for (GradebookCollegeStudent student : gradebook.getStudents()) {
+            StudentGrades grades = student.getStudentGrades();
+            int expectedSize = student.getId() > 10 ? 2 : 1;
+            assertEquals(expectedSize, grades.getMathGradeResults().size());
+            assertEquals(expectedSize, grades.getScienceGradeResults().size());
+            assertEquals(expectedSize, grades.getHistoryGradeResults().size());
+            for (Grade grade : grades.getMathGradeResults()) {
+                assertEquals(student.getId(), grade.getStudentId(), "math grade belongs to its student");
+            }
+            for (Grade grade : grades.getScienceGradeResults()) {
+                assertEquals(student.getId(), grade.getStudentId(), "science grade belongs to its student");
+            }
+            for (Grade grade : grades.getHistoryGradeResults()) {
+                assertEquals(student.getId(), grade.getStudentId(), "history grade belongs to its student");
+            }
+        }
+    }
+
+
+    @SqlGroup({ @Sql(scripts = "/insertData.sql", config = @SqlConfig(commentPrefix = "`")),
+            @Sql("/overRideData.sql"),
+            @Sql("/insertGrade.sql")})
+    @Test
+    public void leaderboardFollowsGradeWrites() {
+
+        jdbc.execute("insert into grade(student_id,subject,grade) values (999,'math',100.00)");
+        leaderboard.rebuild();
+        assertNull(leaderboard.rank(999, "math"), "orphan grades are not ranked");
+
+        List<SubjectRank> top = leaderboard.top("math", 3);
+        assertEquals(List.of(1, 11, 13), top.stream().map(SubjectRank::getStudentId).collect(Collectors.toList()));
+        assertEquals(97.5, top.get(1).getAverage());
+
+        SubjectRank rank = leaderboard.rank(12, "math");
+        assertEquals(81.46, rank.getAverage());
+        assertEquals(4, rank.getRank());
+        assertEquals(30.0, rank.getPercentile(), "one of five below, itself counted as half");
+        assertEquals(5, rank.getRankedStudents());
+
+        studentService.createGrade(100.0, 12, "math");
+        studentService.deleteGrade(14, "math");
+        assertEquals(91.63, leaderboard.rank(12, "math").getAverage());
+        assertEquals(3, leaderboard.rank(12, "math").getRank());
+
+        studentService.deleteStudent(1);
+        assertNull(leaderboard.rank(1, "math"));
+        assertFalse(studentService.createGrade(100.0, 1, "math"));
+        assertNull(leaderboard.rank(1, "math"), "a grade of a deleted student does not bring it back");
+        assertEquals(11, leaderboard.top("math", 1).get(0).getStudentId());
+        assertEquals(4, leaderboard.rank(12, "science").getRankedStudents());
+    }
+
+    @SqlGroup({ @Sql(scripts = "/insertData.sql", config = @SqlConfig(commentPrefix = "`")),
+            @Sql("/overRideData.sql"),
+            @Sql("/insertGrade.sql")})
+    @Test
+    public void gradeStatisticsService() {
+
+        queryCounter.reset();
+        Map<String, SubjectStatistics> statistics = gradeStatisticsService.getStatistics();
+        assertEquals(3, queryCounter.statements(), "aggregates, histogram and one ordered pass");
+
+        assertEquals(List.of("math", "science", "history"), new ArrayList<>(statistics.keySet()));
+        SubjectStatistics math = statistics.get("math");
+        assertEquals(9, math.getCount());
+        assertEquals(84.36, math.getMean());
+        assertEquals(15.24, math.getStandardDeviation());
+        assertEquals(59.0, math.getMin());
+        assertEquals(100.0, math.getMax());
+        assertEquals(79.67, math.getP25());
+        assertEquals(83.25, math.getMedian());
+        assertEquals(100.0, math.getP90());
+        assertArrayEquals(new long[]{0, 0, 0, 0, 0, 1, 1, 1, 2, 4}, math.getHistogram(), "100 falls in the last bucket");
+
+        studentService.deleteGrade(18, "math");
+        math = gradeStatisticsService.getStatistics().get("math");
+        assertEquals(89.13, math.getMedian(), "even count, halfway between 83.25 and 95");
+        assertEquals(81.27, math.getP25());
+
+        jdbc.execute(sqlDeleteScienceGrade);
+        SubjectStatistics science = gradeStatisticsService.getStatistics().get("science");
+        assertEquals(0, science.getCount());
+        assertNull(science.getMean());
+        assertNull(science.getMedian());
+    }
+
+    @SqlGroup({ @Sql(scripts = "/insertData.sql", config = @SqlConfig(commentPrefix = "`")),
+            @Sql("/overRideData.sql"),
+            @Sql("/insertGrade.sql")})
+    @Test
+    public void concurrentReadsDoNotShareGrades() throws Exception {
+
+        int[] studentIds = {1, 11, 12, 13, 14};
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Callable<Void>> tasks = new ArrayList<>();
+
+        for (int i = 0; i < 400; i++) {
+            int studentId = studentIds[i % studentIds.length];
+            if (i % 10 == 0) {
+                tasks.add(() -> {
+                    for (GradebookCollegeStudent student : studentService.getGradebook().getStudents()) {
+                        assertGradesBelongTo(student.getId(), student.getStudentGrades());
+                    }
+                    return null;
+                });
+            } else {
+                tasks.add(() -> {
+                    GradebookCollegeStudent student = studentService.studentInformation(studentId);
+                    assertEquals(studentId, student.getId());
+                    assertGradesBelongTo(studentId, student.getStudentGrades());
+                    return null;
+                });
+            }
+        }
+
+        try {
+            for (Future<Void> result : executor.invokeAll(tasks)) {
+                result.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @SqlGroup({ @Sql(scripts = "/insertData.sql", config = @SqlConfig(commentPrefix = "`")),
+            @Sql("/overRideData.sql")})
+    @Test
+    public void concurrentCreateGradeLosesNothing() throws Exception {
+
+        int[] studentIds = {11, 12, 13, 14};
+        String[] gradeTypes = {"math", "science", "history"};
+        int gradesPerSubject = 25;
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Callable<Boolean>> tasks = new ArrayList<>();
+
+        for (int i = 0; i < gradesPerSubject; i++) {
+            for (int studentId : studentIds) {
+                for (String gradeType : gradeTypes) {
+                    //the whole part of the grade encodes the owning student
+                    double grade = studentId + i / 100.0;
+                    tasks.add(() -> studentService.createGrade(grade, studentId, gradeType));
+                }
+            }
+        }
+
+        try {
+            for (Future<Boolean> result : executor.invokeAll(tasks)) {
+                assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        for (int studentId : studentIds) {
+            StudentGrades studentGrades = studentService.studentInformation(studentId).getStudentGrades();
+            assertEquals(gradesPerSubject, studentGrades.getMathGradeResults().size());
+            assertEquals(gradesPerSubject, studentGrades.getScienceGradeResults().size());
+            assertEquals(gradesPerSubject, studentGrades.getHistoryGradeResults().size());
+            assertGradesBelongTo(studentId, studentGrades);
+            for (Grade grade : studentGrades.getMathGradeResults()) {
+                assertEquals(studentId, (int) grade.getGrade(), "grade attributed to the wrong student");
+            }
+        }
+    }
+
+    @Test
+    public void studentInformationStatementBudget() {
+
+        queryCounter.reset();
+        assertNotNull(studentService.studentInformation(1));
+        assertEquals(1, queryCounter.statements(), "student and grades in one round trip");
+
+        queryCounter.reset();
+        assertNotNull(studentService.studentInformation(1));
+        assertEquals(0, queryCounter.statements(), "served from the cache");
+    }
+
+    @Test
+    public void studentsInformationStatementsDoNotGrowWithBatch() {
+
+        addStudentsWithGrades(50);
+        List<Integer> ids = new ArrayList<>();
+        for (int id = 52; id >= 0; id--) {
+            ids.add(id);
+        }
+
+        queryCounter.reset();
+        Map<Integer, GradebookCollegeStudent> students = studentService.studentsInformation(ids);
+        assertEquals(2, queryCounter.statements(), "students and their grades, one IN query each");
+
+        assertEquals(51, students.size(), "unknown ids 0 and 52 are left out");
+        assertEquals(51, students.keySet().iterator().next(), "request order is kept");
+        assertEquals("Eric", students.get(1).getFirstname());
+        assertEquals(1, students.get(1).getStudentGrades().getMathGradeResults().size());
+        assertEquals(75.0, students.get(20).getStudentGrades().getHistoryGradeSummary().getAverage());
+
+        queryCounter.reset();
+        assertSame(students.get(20), studentService.studentInformation(20), "loaded students are cached");
+        assertEquals(2, studentService.studentsInformation(List.of(1, 20, 52)).size());
+        assertEquals(1, queryCounter.statements(), "only the unknown id is looked up again");
+    }
+
+    @Test
+    public void getGradebookStatementsDoNotGrowWithRoster() {
+
+        queryCounter.reset();
+        assertEquals(1, studentService.getGradebook().getStudents().size());
+        long singleStudent = queryCounter.statements();
+
+        queryCounter.reset();
+        assertEquals(1, studentService.getGradebookAfter(0, 10).getStudents().size());
+        long singleStudentPage = queryCounter.statements();
+
+        addStudentsWithGrades(50);
+
+        queryCounter.reset();
+        assertEquals(51, studentService.getGradebook().getStudents().size());
+        assertEquals(singleStudent, queryCounter.statements(), "getGradebook must not query per student");
+        assertTrue(singleStudent <= 2, "students and grades, one query each");
+
+        queryCounter.reset();
+        assertEquals(10, studentService.getGradebookAfter(0, 10).getStudents().size());
+        assertEquals(singleStudentPage, queryCounter.statements(), "a page must not query per student");
+        assertTrue(singleStudentPage <= 2, "student page and its grades, one query each");
+    }
+
+    @Test
+    public void writeStatementBudgets() {
+
+        queryCounter.reset();
+        assertTrue(studentService.createGrade(80.0, 1, "math"));
+        assertEquals(1, queryCounter.statements(), "a single insert");
+
+        addStudentsWithGrades(20);
+
+        queryCounter.reset();
+        studentService.deleteStudent(1);
+        assertEquals(2, queryCounter.statements(), "one delete per table");
+
+        queryCounter.reset();
+        assertEquals(20, studentService.deleteStudents(List.of(2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20, 21)));
+        assertEquals(2, queryCounter.statements(), "one delete per table regardless of the number of students");
+    }
+
+    @SqlGroup({ @Sql(scripts = "/insertData.sql", config = @SqlConfig(commentPrefix = "`")),
+            @Sql("/overRideData.sql"),
+            @Sql("/insertGrade.sql")})
+    @Test
+    public void compactGradebookService() {
+
+        jdbc.execute("insert into student(id,firstname,lastname,email_address) values (20,'No','Grades','no.grades@luv2code_school.com')");
+        jdbc.execute("insert into grade(id,student_id,subject,grade) values (99,99,'math',50.00)");
+
+        queryCounter.reset();
+        List<CompactGradebookStudent> students = compactGradebookService.getGradebook();
+        assertEquals(2, queryCounter.statements(), "students and grades, one query each");
+
+        assertEquals(List.of(1, 11, 12, 13, 14, 20),
+                students.stream().map(CompactGradebookStudent::getId).collect(Collectors.toList()));
+
+        CompactGradebookStudent eric = students.get(1);
+        assertEquals("Eric", eric.getFirstname());
+        assertArrayEquals(new int[]{11, 12}, eric.getMath().getIds());
+        assertArrayEquals(new double[]{100.00, 95.00}, eric.getMath().getGrades());
+        assertEquals(97.5, eric.getMath().getAverage());
+        assertArrayEquals(new int[]{21, 22}, eric.getScience().getIds());
+        assertArrayEquals(new int[]{31, 32}, eric.getHistory().getIds());
+
+        assertArrayEquals(new int[]{1}, students.get(0).getMath().getIds());
+
+        CompactGradebookStudent withoutGrades = students.get(5);
+        assertEquals(0, withoutGrades.getMath().getGrades().length);
+        assertNull(withoutGrades.getHistory().getAverage());
+
+        StudentGrades studentGrades = studentService.studentInformation(12).getStudentGrades();
+        assertEquals(studentGrades.getMathGradeSummary().getAverage(), students.get(2).getMath().getAverage(),
+                "same rounding as the entity based view");
+    }
+
+    @Test
+    public void gradebookSnapshotService() throws Exception {
+
+        assertNull(gradebookSnapshotService.current(), "snapshot mode is disabled");
+
+        GradebookSnapshotService.Snapshot snapshot = gradebookSnapshotService.rebuild();
+        assertTrue(new String(snapshot.getJson(), StandardCharsets.UTF_8).contains("eric.roby@luv2code_school.com"));
+        assertEquals(studentService.getRosterVersion(), snapshot.getRosterVersion());
+        assertEquals(snapshot.getETag(), gradebookSnapshotService.rebuild().getETag(), "same roster, same ETag");
+
+        studentService.createGrade(55.5, 1, "history");
+
+        GradebookSnapshotService.Snapshot changed = gradebookSnapshotService.rebuild();
+        assertNotEquals(snapshot.getETag(), changed.getETag());
+        assertTrue(new String(changed.getJson(), StandardCharsets.UTF_8).contains("55.5"));
+    }
+
+    @Test
+    public void parallelReadNotStartedRunsOnTheJoiningThread() {
+        ParallelReadExecutor executor = new ParallelReadExecutor(true, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            //the only worker is busy, as it would be waiting for a connection held by its caller
+            executor.submit(() -> {
+                try {
+                    return release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            CompletableFuture<String> read = executor.submit(() -> Thread.currentThread().getName());
+
+            assertEquals(Thread.currentThread().getName(), ParallelReadExecutor.join(read));
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void uncountedGuardedInsertsAreCheckedAgainstTheStudents() {
+        //a driver that does not count batched statements, the students are the real ones
+        JdbcTemplate uncountingJdbc = spy(jdbc);
+        doReturn(new int[]{Statement.SUCCESS_NO_INFO, Statement.SUCCESS_NO_INFO, 0})
+                .when(uncountingJdbc).batchUpdate(anyString(), anyList());
+
+        boolean[] inserted = GuardedGradeInserts.insert(uncountingJdbc,
+                List.of(new Object[]{1, "math", 90.0}, new Object[]{2, "math", 90.0}, new Object[]{1, "science", 90.0}));
+
+        assertArrayEquals(new boolean[]{true, false, false}, inserted, "student 2 is gone, the last row was counted");
+    }
+
+    private List<SubjectGrade> subjectGrades(int studentId, String subject) {
+        List<SubjectGrade> grades = new ArrayList<>();
+        gradeDao.findGradeByStudentId(studentId).forEach(grade -> {
+            if (grade.getSubject().equals(subject)) {
+                grades.add(grade);
+            }
+        });
+        return grades;
+    }
+
+    private void addStudentsWithGrades(int students) {
+        List<Object[]> studentRows = new ArrayList<>();
+        List<Object[]> gradeRows = new ArrayList<>();
+        for (int id = 2; id < students + 2; id++) {
+            studentRows.add(new Object[]{id, "Student", "No" + id, "student" + id + "@luv2code_school.com"});
+            for (String subject : List.of("math", "science", "history")) {
+                gradeRows.add(new Object[]{id, subject, 75.0});
+            }
+        }
+        jdbc.batchUpdate("insert into student(id,firstname,lastname,email_address) values (?,?,?,?)", studentRows);
+        jdbc.batchUpdate("insert into grade(student_id,subject,grade) values (?,?,?)", gradeRows);
+    }
+
+    private static void assertGradesBelongTo(int studentId, StudentGrades studentGrades) {
+        List<Grade> grades = new ArrayList<>();
+        grades.addAll(studentGrades.getMathGradeResults());
+        grades.addAll(studentGrades.getScienceGradeResults());
+        grades.addAll(studentGrades.getHistoryGradeResults());
+        assertFalse(grades.isEmpty());
+        for (Grade grade : grades) {
+            assertEquals(studentId, grade.getStudentId(), "grade leaked from another student");
+        }
+    }
+
 
     @AfterEach
     public void setupAfterTransaction() {
+        gradeSummaryStore.clear();
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
         jdbc.execute(sqlDeleteStudent);
         jdbc.execute(sqlDeleteMathGrade);
         jdbc.execute(sqlDeleteScienceGrade);